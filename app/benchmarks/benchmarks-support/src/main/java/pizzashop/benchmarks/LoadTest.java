@@ -0,0 +1,182 @@
+package pizzashop.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/*
+Pushes a deterministic stream of synthetic records through a TopologyHarness and reports:
+
+- events per second and per record processing latency percentiles, over the measured records only
+- bytes written per input record to changelog, repartition and output topics, and the state directory size per input
+  record, over the warm-up and measured records together since that is what the state holds
+
+Options are given as name=value arguments:
+
+  records=2000000                       measured records
+  warmup=100000                         records processed before measuring, to let the JIT settle
+  seed=42                               seed of the synthetic records
+  report=target/load-test.json          where to write the report
+  max-changelog-bytes-per-record=...    budgets, the run fails when one is exceeded
+  max-repartition-bytes-per-record=...
+  max-state-bytes-per-record=...
+  max-p99-micros=...
+  min-events-per-second=...
+
+Changelog and repartition budgets are the ones to gate topology changes on: they only depend on the topology and the
+seed, whereas the latency and throughput ones also depend on the machine. TopologyTestDriver commits after every
+record, so store caches never fold updates and changelog bytes are an upper bound of what a running application writes.
+ */
+public final class LoadTest {
+
+    public static final Instant START = Instant.parse("2022-10-17T13:00:00Z");
+
+    private static final List<String> BUDGETS = List.of(
+            "max-changelog-bytes-per-record", "max-repartition-bytes-per-record", "max-state-bytes-per-record",
+            "max-p99-micros", "min-events-per-second");
+
+    private final String name;
+    private final Map<String, String> options;
+
+    private LoadTest(String name, Map<String, String> options) {
+        this.name = name;
+        this.options = options;
+    }
+
+    public static LoadTest of(String name, String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return new LoadTest(name, options);
+    }
+
+    public long seed() {
+        return Long.parseLong(option("seed", "42"));
+    }
+
+    /* An option of the topology under test */
+    public String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /*
+    Pipes warm-up and measured records with next, which pipes one record into the harness, then prints and writes
+    the report. Returns whether every budget was met.
+     */
+    public boolean run(TopologyHarness harness, Consumer<TopologyHarness> next) {
+        long records = Long.parseLong(options.getOrDefault("records", "2000000"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "100000"));
+        if (records > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + Integer.MAX_VALUE + " records can be measured");
+        }
+
+        for (long index = 0; index < warmup; index++) {
+            next.accept(harness);
+        }
+
+        long[] latencies = new long[(int) records];
+        long started = System.nanoTime();
+        for (int index = 0; index < records; index++) {
+            long recordStarted = System.nanoTime();
+            next.accept(harness);
+            latencies[index] = System.nanoTime() - recordStarted;
+        }
+        long elapsed = System.nanoTime() - started;
+        Arrays.sort(latencies);
+
+        long inputRecords = harness.inputRecords();
+        Map<String, Object> topics = new LinkedHashMap<>();
+        long changelogBytes = 0;
+        long repartitionBytes = 0;
+        for (Map.Entry<String, TopologyHarness.TopicStats> topic : harness.topicStats().entrySet()) {
+            TopologyHarness.TopicStats stats = topic.getValue();
+            topics.put(topic.getKey(), Map.of(
+                    "records", stats.records(),
+                    "bytes", stats.bytes(),
+                    "bytesPerInputRecord", (double) stats.bytes() / inputRecords));
+            if (topic.getKey().endsWith("-changelog")) {
+                changelogBytes += stats.bytes();
+            } else if (topic.getKey().endsWith("-repartition")) {
+                repartitionBytes += stats.bytes();
+            }
+        }
+
+        Map<String, Double> measured = new LinkedHashMap<>();
+        measured.put("max-changelog-bytes-per-record", (double) changelogBytes / inputRecords);
+        measured.put("max-repartition-bytes-per-record", (double) repartitionBytes / inputRecords);
+        measured.put("max-state-bytes-per-record", (double) harness.stateDirBytes() / inputRecords);
+        measured.put("max-p99-micros", percentile(latencies, 0.99) / 1000.0);
+        measured.put("min-events-per-second", records / (elapsed / 1e9));
+
+        List<String> exceeded = new ArrayList<>();
+        for (String budget : BUDGETS) {
+            String limit = options.get(budget);
+            if (limit == null) {
+                continue;
+            }
+            double value = measured.get(budget);
+            boolean met = budget.startsWith("min-")
+                    ? value >= Double.parseDouble(limit)
+                    : value <= Double.parseDouble(limit);
+            if (!met) {
+                exceeded.add(String.format("%s: measured %.1f, budget %s", budget, value, limit));
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("topology", name);
+        report.put("seed", seed());
+        report.put("warmupRecords", warmup);
+        report.put("measuredRecords", records);
+        report.put("eventsPerSecond", measured.get("min-events-per-second"));
+        report.put("latencyMicros", Map.of(
+                "p50", percentile(latencies, 0.5) / 1000.0,
+                "p99", percentile(latencies, 0.99) / 1000.0,
+                "p999", percentile(latencies, 0.999) / 1000.0,
+                "max", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000.0));
+        report.put("changelogBytesPerRecord", measured.get("max-changelog-bytes-per-record"));
+        report.put("repartitionBytesPerRecord", measured.get("max-repartition-bytes-per-record"));
+        report.put("stateBytesPerRecord", measured.get("max-state-bytes-per-record"));
+        report.put("topics", topics);
+        report.put("exceededBudgets", exceeded);
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        try {
+            String json = objectMapper.writeValueAsString(report);
+            System.out.println(json);
+            String path = options.get("report");
+            if (path != null) {
+                objectMapper.writeValue(Path.of(path).toFile(), report);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        exceeded.forEach(budget -> System.err.println("Budget exceeded, " + budget));
+        return exceeded.isEmpty();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
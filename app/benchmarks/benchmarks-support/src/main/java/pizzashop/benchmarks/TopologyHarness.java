@@ -0,0 +1,142 @@
+package pizzashop.benchmarks;
+
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/*
+A topology running in a TopologyTestDriver, with persistent stores in a temporary state directory that is deleted on
+close. Records are piped as bytes, the topology's own serdes do the rest.
+
+The wall clock follows event time, so wall clock punctuators fire as they would with records arriving in real time.
+After every record the topics it produced to, output, repartition and changelog topics alike, are drained and their
+records and bytes counted, so the driver doesn't buffer them for the length of a run and write amplification can be
+read from topicStats().
+ */
+public class TopologyHarness implements AutoCloseable {
+
+    private final Path stateDir;
+    private final TopologyTestDriver driver;
+    private final Map<String, TestInputTopic<byte[], byte[]>> inputs = new HashMap<>();
+    private final Map<String, TestOutputTopic<byte[], byte[]>> produced = new HashMap<>();
+    private final Map<String, TopicStats> topicStats = new TreeMap<>();
+    private final ByteArraySerializer serializer = new ByteArraySerializer();
+    private final ByteArrayDeserializer deserializer = new ByteArrayDeserializer();
+    private Instant wallClock;
+    private long inputRecords;
+
+    public TopologyHarness(String applicationId, Topology topology, Instant start) {
+        try {
+            stateDir = Files.createTempDirectory(applicationId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(topology, props, start);
+        wallClock = start;
+    }
+
+    /* Processes the record and returns the number of records it produced, on any topic */
+    public int pipe(String topic, byte[] key, byte[] value, Instant timestamp) {
+        if (timestamp.isAfter(wallClock)) {
+            driver.advanceWallClockTime(Duration.between(wallClock, timestamp));
+            wallClock = timestamp;
+        }
+        inputs.computeIfAbsent(topic, name -> driver.createInputTopic(name, serializer, serializer))
+                .pipeInput(new TestRecord<>(key, value, timestamp));
+        inputRecords++;
+
+        int records = 0;
+        for (String name : driver.producedTopicNames()) {
+            TestOutputTopic<byte[], byte[]> output =
+                    produced.computeIfAbsent(name, topicName -> driver.createOutputTopic(topicName, deserializer,
+                            deserializer));
+            if (output.isEmpty()) {
+                continue;
+            }
+            TopicStats stats = topicStats.computeIfAbsent(name, topicName -> new TopicStats());
+            while (!output.isEmpty()) {
+                TestRecord<byte[], byte[]> record = output.readRecord();
+                stats.records++;
+                stats.bytes += length(record.key()) + length(record.value());
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /* Records piped since the harness was created */
+    public long inputRecords() {
+        return inputRecords;
+    }
+
+    /* Records and bytes (keys and values) written to each topic since the harness was created */
+    public Map<String, TopicStats> topicStats() {
+        return topicStats;
+    }
+
+    /* Size of the files of the state directory, leaving out the RocksDB info logs */
+    public long stateDirBytes() {
+        try (Stream<Path> files = Files.walk(stateDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("LOG"))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public TopologyTestDriver driver() {
+        return driver;
+    }
+
+    @Override
+    public void close() {
+        driver.close();
+        try (Stream<Path> files = Files.walk(stateDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    public static final class TopicStats {
+        private long records;
+        private long bytes;
+
+        public long records() {
+            return records;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pizzashop.repository;
+
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.WindowStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.OrdersAndRevenueCountsTopology;
+import pizzashop.streams.OrdersTopologyHarness;
+import pizzashop.streams.Rollup;
+import pizzashop.streams.SyntheticOrders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+The local reads behind /orders/overview and /orders/ordersPerMinute, against stores filled with two hours of
+synthetic orders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WindowStoreQueryBenchmark {
+
+    @Param({"1", "4"})
+    int shards;
+
+    private OrdersTopologyHarness harness;
+    private KStreamsWindowStore<TimePeriod> summaryStore;
+    private KStreamsWindowStore<TimePeriod> minuteStore;
+    private List<String> keys;
+    private Instant now;
+
+    @Setup
+    public void setup() {
+        Instant start = Instant.parse("2022-10-17T13:00:00Z");
+        SyntheticOrders orders = new SyntheticOrders(42, start);
+        harness = new OrdersTopologyHarness(start, shards);
+
+        Instant end = start.plus(Duration.ofHours(2));
+        SyntheticOrders.Event order = orders.next();
+        while (order.timestamp().isBefore(end)) {
+            harness.pipe(order);
+            order = orders.next();
+        }
+        now = end;
+
+        TopologyTestDriver driver = harness.harness().driver();
+        WindowStore<String, TimePeriod> summary = driver.getWindowStore(OrdersAndRevenueCountsTopology.ORDERS_SUMMARY_STORE);
+        WindowStore<String, TimePeriod> minutes = driver.getWindowStore(Rollup.MINUTE.storeName());
+        summaryStore = new KStreamsWindowStore<>(summary);
+        minuteStore = new KStreamsWindowStore<>(minutes);
+        keys = OrdersAndRevenueCountsTopology.shardKeys(shards);
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public List<TimePeriod> overview() {
+        return summaryStore.aggregatePeriods(keys, now.truncatedTo(ChronoUnit.SECONDS), Duration.ofMinutes(1), 2,
+                TimePeriod::new, TimePeriod::add);
+    }
+
+    @Benchmark
+    public List<TimePeriod> ordersPerMinute() {
+        return minuteStore.aggregatePeriods(keys, now.truncatedTo(ChronoUnit.MINUTES), Rollup.MINUTE.window(), 60,
+                TimePeriod::new, TimePeriod::add);
+    }
+}
@@ -0,0 +1,59 @@
+package pizzashop.streams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+Orders per second through OrdersAndRevenueCountsTopology: the shard re-keying and repartition, and the per second,
+per minute and per hour aggregations with their stores and serdes. generate is the cost of generating the orders
+alone, to subtract from order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OrdersAndRevenueCountsTopologyBenchmark {
+
+    @Param({"1", "4"})
+    int shards;
+
+    private SyntheticOrders orders;
+    private OrdersTopologyHarness harness;
+
+    @Setup
+    public void setup() {
+        Instant start = Instant.parse("2022-10-17T13:00:00Z");
+        orders = new SyntheticOrders(42, start);
+        harness = new OrdersTopologyHarness(start, shards);
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public void order() {
+        harness.pipe(orders.next());
+    }
+
+    @Benchmark
+    public SyntheticOrders.Event generate() {
+        return orders.next();
+    }
+}
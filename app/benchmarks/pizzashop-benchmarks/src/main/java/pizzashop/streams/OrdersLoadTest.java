@@ -0,0 +1,22 @@
+package pizzashop.streams;
+
+import pizzashop.benchmarks.LoadTest;
+
+/*
+Load test of OrdersAndRevenueCountsTopology. Besides the LoadTest options, shards=4 sets the number of shards orders
+are spread over.
+ */
+public class OrdersLoadTest {
+
+    public static void main(String[] args) {
+        LoadTest loadTest = LoadTest.of("OrdersAndRevenueCountsTopology", args);
+        int shards = Integer.parseInt(loadTest.option("shards", "4"));
+        SyntheticOrders orders = new SyntheticOrders(loadTest.seed(), LoadTest.START);
+
+        boolean passed;
+        try (OrdersTopologyHarness harness = new OrdersTopologyHarness(LoadTest.START, shards)) {
+            passed = loadTest.run(harness.harness(), ignored -> harness.pipe(orders.next()));
+        }
+        System.exit(passed ? 0 : 1);
+    }
+}
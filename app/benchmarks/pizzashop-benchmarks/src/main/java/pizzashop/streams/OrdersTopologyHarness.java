@@ -0,0 +1,37 @@
+package pizzashop.streams;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import pizzashop.benchmarks.TopologyHarness;
+
+import java.time.Instant;
+
+/*
+OrdersAndRevenueCountsTopology in a TopologyHarness, with orders spread over the given number of shards. The
+pizzashop.orders.event-timestamps system property selects the timestamp mode, string unless set.
+ */
+public class OrdersTopologyHarness implements AutoCloseable {
+
+    private final TopologyHarness harness;
+
+    public OrdersTopologyHarness(Instant start, int shards) {
+        OrdersAndRevenueCountsTopology topology = new OrdersAndRevenueCountsTopology();
+        topology.shards = shards;
+        topology.eventTimestamps = System.getProperty("pizzashop.orders.event-timestamps", "string");
+        topology.registry = new SimpleMeterRegistry();
+        harness = new TopologyHarness("orders-topology-harness", topology.buildTopology(), start);
+    }
+
+    /* Processes the order and returns the number of records it produced */
+    public int pipe(SyntheticOrders.Event event) {
+        return harness.pipe("orders", event.key(), event.value(), event.timestamp());
+    }
+
+    public TopologyHarness harness() {
+        return harness;
+    }
+
+    @Override
+    public void close() {
+        harness.close();
+    }
+}
@@ -0,0 +1,73 @@
+package pizzashop.streams;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.UUID;
+
+/*
+Deterministic stream of orders shaped like the ones orders-service/multiseeder.py produces: one every 20 to 100 ms of
+event time, with 1 to 10 items of 80 products bought by 1000 users. The same seed always gives the same orders with
+the same timestamps.
+
+Values are written with a StringBuilder so that generating an order costs little next to processing it.
+ */
+public final class SyntheticOrders {
+
+    public record Event(byte[] key, byte[] value, Instant timestamp) {
+    }
+
+    private static final int PRODUCTS = 80;
+    private static final int USERS = 1000;
+    private static final double SHOP_LAT = 12.978268;
+    private static final double SHOP_LON = 77.59408;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
+
+    private final Random random;
+    private final double[] productPrices = new double[PRODUCTS];
+    private Instant clock;
+
+    public SyntheticOrders(long seed, Instant start) {
+        random = new Random(seed);
+        clock = start;
+        for (int index = 0; index < PRODUCTS; index++) {
+            productPrices[index] = 50 + random.nextInt(60) * 10;
+        }
+    }
+
+    public Event next() {
+        clock = clock.plusMillis(20 + random.nextInt(81));
+        String orderId = new UUID(random.nextLong(), random.nextLong()).toString();
+        int items = 1 + random.nextInt(10);
+
+        StringBuilder value = new StringBuilder(128 + 64 * items)
+                .append("{\"id\":\"").append(orderId)
+                .append("\",\"createdAt\":\"").append(TIMESTAMP_FORMAT.format(clock))
+                .append("\",\"userId\":").append(random.nextInt(USERS))
+                .append(",\"items\":[");
+        double price = 0;
+        for (int item = 0; item < items; item++) {
+            int product = random.nextInt(PRODUCTS);
+            int quantity = 1 + random.nextInt(5);
+            price += quantity * productPrices[product];
+            if (item > 0) {
+                value.append(',');
+            }
+            value.append("{\"productId\":\"").append(product + 1)
+                    .append("\",\"quantity\":").append(quantity)
+                    .append(",\"price\":").append(productPrices[product])
+                    .append('}');
+        }
+        value.append("],\"price\":").append(price)
+                .append(",\"deliveryLat\":\"").append(SHOP_LAT + (random.nextDouble() - 0.5) / 5)
+                .append("\",\"deliveryLon\":\"").append(SHOP_LON + (random.nextDouble() - 0.5) / 5)
+                .append("\",\"status\":\"PLACED_ORDER\"}");
+
+        return new Event(orderId.getBytes(StandardCharsets.UTF_8),
+                value.toString().getBytes(StandardCharsets.UTF_8), clock);
+    }
+}
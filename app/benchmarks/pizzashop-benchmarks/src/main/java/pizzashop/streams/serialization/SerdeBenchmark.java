@@ -0,0 +1,82 @@
+package pizzashop.streams.serialization;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pizzashop.models.Order;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.SyntheticOrders;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+The serdes of the orders topic, of its repartition topic, and of the window stores: JSON for the per second store and
+the fixed width binary one of the rollup stores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SerdeBenchmark {
+    private static final String TOPIC = "benchmark";
+
+    private final Serde<Order> orderSerde = JsonSerdes.Order();
+    private final Serde<TimePeriod> jsonTimePeriodSerde = JsonSerdes.TimePeriod();
+    private final Serde<TimePeriod> compactTimePeriodSerde = CompactSerdes.TimePeriod();
+
+    private Order order;
+    private byte[] orderBytes;
+    private TimePeriod timePeriod;
+    private byte[] jsonTimePeriodBytes;
+    private byte[] compactTimePeriodBytes;
+
+    @Setup
+    public void setup() {
+        orderBytes = new SyntheticOrders(42, Instant.parse("2022-10-17T13:00:00Z")).next().value();
+        order = orderSerde.deserializer().deserialize(TOPIC, orderBytes);
+        timePeriod = new TimePeriod(583, 1215890.5);
+        jsonTimePeriodBytes = jsonTimePeriodSerde.serializer().serialize(TOPIC, timePeriod);
+        compactTimePeriodBytes = compactTimePeriodSerde.serializer().serialize(TOPIC, timePeriod);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() {
+        return orderSerde.serializer().serialize(TOPIC, order);
+    }
+
+    @Benchmark
+    public Order deserializeOrder() {
+        return orderSerde.deserializer().deserialize(TOPIC, orderBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonTimePeriod() {
+        return jsonTimePeriodSerde.serializer().serialize(TOPIC, timePeriod);
+    }
+
+    @Benchmark
+    public TimePeriod deserializeJsonTimePeriod() {
+        return jsonTimePeriodSerde.deserializer().deserialize(TOPIC, jsonTimePeriodBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeCompactTimePeriod() {
+        return compactTimePeriodSerde.serializer().serialize(TOPIC, timePeriod);
+    }
+
+    @Benchmark
+    public TimePeriod deserializeCompactTimePeriod() {
+        return compactTimePeriodSerde.deserializer().deserialize(TOPIC, compactTimePeriodBytes);
+    }
+}
@@ -0,0 +1,102 @@
+package pizzashop;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.pinot.client.ResultSet;
+import org.apache.pinot.client.ResultTableResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pizzashop.models.SummaryRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Mapping of Pinot result sets to the responses of OrdersResource, up to the JSON bytes written to the client, since
+some responses are lazy streams only consumed while being written. Result sets come from broker responses recorded
+in src/main/resources/pinot. parseOrdersPerMinute is the broker response parsing the Pinot client does before that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    // Same modules as the Quarkus ObjectMapper, among them the one serializing java.util.stream.Stream
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private byte[] ordersPerMinuteResponse;
+    private ResultSet ordersPerMinute;
+    private ResultSet popularItems;
+    private ResultSet popularCategories;
+    private ResultSet orderUser;
+    private ResultSet orderProducts;
+    private ResultSet orderStatuses;
+    private ResultSet orderDeliveryStatus;
+
+    @Setup
+    public void setup() throws IOException {
+        ordersPerMinuteResponse = recorded("orders-per-minute.json");
+        ordersPerMinute = resultSet(ordersPerMinuteResponse);
+        popularItems = resultSet(recorded("popular-items.json"));
+        popularCategories = resultSet(recorded("popular-categories.json"));
+        orderUser = resultSet(recorded("order-user.json"));
+        orderProducts = resultSet(recorded("order-products.json"));
+        orderStatuses = resultSet(recorded("order-statuses.json"));
+        orderDeliveryStatus = resultSet(recorded("order-delivery-status.json"));
+    }
+
+    @Benchmark
+    public ResultSet parseOrdersPerMinute() throws IOException {
+        return resultSet(ordersPerMinuteResponse);
+    }
+
+    @Benchmark
+    public byte[] ordersPerMinute() throws IOException {
+        List<SummaryRow> rows = new ArrayList<>();
+        OrdersResource.addSummaryRows(rows, ordersPerMinute);
+        return objectMapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public byte[] popular() throws IOException {
+        return objectMapper.writeValueAsBytes(OrdersResource.popular(popularItems, popularCategories));
+    }
+
+    @Benchmark
+    public byte[] order() throws IOException {
+        return objectMapper.writeValueAsBytes(OrdersResource.orderDetails(
+                orderUser, orderProducts, orderStatuses, orderDeliveryStatus));
+    }
+
+    private ResultSet resultSet(byte[] brokerResponse) throws IOException {
+        JsonNode response = objectMapper.readTree(brokerResponse);
+        return new ResultTableResultSet(response.get("resultTable"));
+    }
+
+    private static byte[] recorded(String name) {
+        try (InputStream in = ResponseMappingBenchmark.class.getResourceAsStream("/pinot/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("No recorded response " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pizzashop.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import pizzashop.benchmarks.TopologyHarness;
+import pizzashop.kafka.geo.DeliveryIndex;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+EnrichedOrdersTopology in a TopologyHarness. Topics and options are read from the same environment variables as the
+application, so e.g. PRODUCT_ENRICHMENT=join or INTERNAL_SERDE_FORMAT=binary set on the command line apply here too.
+ */
+public class EnrichedOrdersHarness implements AutoCloseable {
+
+    private final TopologyHarness harness;
+    private final Map<SyntheticEvents.Kind, String> topics = new EnumMap<>(SyntheticEvents.Kind.class);
+
+    public EnrichedOrdersHarness(Instant start) {
+        EnrichedOrdersTopology topology = new EnrichedOrdersTopology();
+        topology.deliveryIndex = new DeliveryIndex();
+        topology.registry = new SimpleMeterRegistry();
+        harness = new TopologyHarness("enriched-orders-harness", topology.buildTopology(), start);
+
+        topics.put(SyntheticEvents.Kind.PRODUCT, topic("PRODUCTS_TOPIC", "mysql-connector-1.pizzashop.products"));
+        topics.put(SyntheticEvents.Kind.ORDER, topic("ORDERS_TOPIC", "orders"));
+        topics.put(SyntheticEvents.Kind.STATUS, topic("ORDER_STATUSES_TOPIC", "ordersStatuses"));
+        topics.put(SyntheticEvents.Kind.DELIVERY, topic("DELIVERY_STATUSES_TOPIC", "deliveryStatuses"));
+    }
+
+    /* Processes the event and returns the number of records it produced */
+    public int pipe(SyntheticEvents.Event event) {
+        return harness.pipe(topics.get(event.kind()), event.key(), event.value(), event.timestamp());
+    }
+
+    public TopologyHarness harness() {
+        return harness;
+    }
+
+    @Override
+    public void close() {
+        harness.close();
+    }
+
+    private static String topic(String variable, String defaultTopic) {
+        return System.getenv().getOrDefault(variable, defaultTopic);
+    }
+}
@@ -0,0 +1,25 @@
+package pizzashop.kafka;
+
+import pizzashop.benchmarks.LoadTest;
+
+/*
+Load test of EnrichedOrdersTopology: interleaved order lifecycles, orders, order statuses and delivery statuses, with
+a product price change every PRODUCT_UPDATE_EVERY records. See LoadTest for the options and the report.
+ */
+public class EnrichedOrdersLoadTest {
+    private static final int PRODUCT_UPDATE_EVERY = 1000;
+
+    public static void main(String[] args) {
+        LoadTest loadTest = LoadTest.of("EnrichedOrdersTopology", args);
+        SyntheticEvents events = new SyntheticEvents(loadTest.seed(), LoadTest.START);
+
+        boolean passed;
+        try (EnrichedOrdersHarness harness = new EnrichedOrdersHarness(LoadTest.START)) {
+            events.products().forEach(harness::pipe);
+            long[] piped = {0};
+            passed = loadTest.run(harness.harness(), ignored -> harness.pipe(
+                    ++piped[0] % PRODUCT_UPDATE_EVERY == 0 ? events.productUpdate() : events.next()));
+        }
+        System.exit(passed ? 0 : 1);
+    }
+}
@@ -0,0 +1,78 @@
+package pizzashop.kafka;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+Records per second through each input of EnrichedOrdersTopology, stores and serdes included:
+
+- order: the items flatMap and product enrichment, the popularity sketches and the status tracker insert
+- productUpdate: the catalog global store
+- deliveryStatus: the delivery positions global store and index
+- lifecycle: interleaved orders, order statuses and delivery statuses, the only way to drive the status tracker with
+  statuses of orders it knows about
+- generate: cost of generating the lifecycle records alone, to subtract from lifecycle
+
+Run with PRODUCT_ENRICHMENT=join or INTERNAL_SERDE_FORMAT=binary in the environment to measure the other modes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class EnrichedOrdersTopologyBenchmark {
+
+    private SyntheticEvents events;
+    private EnrichedOrdersHarness harness;
+
+    @Setup
+    public void setup() {
+        Instant start = Instant.parse("2022-10-17T13:00:00Z");
+        events = new SyntheticEvents(42, start);
+        harness = new EnrichedOrdersHarness(start);
+        events.products().forEach(harness::pipe);
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public int order() {
+        return harness.pipe(events.order());
+    }
+
+    @Benchmark
+    public int productUpdate() {
+        return harness.pipe(events.productUpdate());
+    }
+
+    @Benchmark
+    public int deliveryStatus() {
+        return harness.pipe(events.deliveryStatus());
+    }
+
+    @Benchmark
+    public int lifecycle() {
+        return harness.pipe(events.next());
+    }
+
+    @Benchmark
+    public SyntheticEvents.Event generate() {
+        return events.next();
+    }
+}
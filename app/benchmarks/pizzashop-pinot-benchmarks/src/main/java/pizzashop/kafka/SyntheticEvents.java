@@ -0,0 +1,235 @@
+package pizzashop.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+
+/*
+Deterministic stream of the records EnrichedOrdersTopology consumes, shaped like the ones orders-service/multiseeder.py
+(orders, and products through the Debezium CDC topic) and delivery-service/app.py (order and delivery statuses)
+produce. The same seed always gives the same records with the same timestamps.
+
+next() returns a full order lifecycle in event time order: a new order every 20 to 100 ms, its status changes seconds
+apart as in the delivery service, and while it's out for delivery a position every few seconds until it's delivered.
+order(), productUpdate() and deliveryStatus() return a single kind of record for exercising one input at a time.
+
+Values are written with a StringBuilder so that generating a record costs little next to processing it.
+ */
+public final class SyntheticEvents {
+
+    public enum Kind {
+        PRODUCT, ORDER, STATUS, DELIVERY
+    }
+
+    public record Event(Kind kind, byte[] key, byte[] value, Instant timestamp) {
+    }
+
+    public static final int PRODUCTS = 80;
+    private static final int USERS = 1000;
+    // Orders of deliveryStatus() are picked among this many, like the couple of hundred orders usually in transit
+    private static final int ORDERS_IN_TRANSIT = 1024;
+    private static final Duration POSITION_INTERVAL = Duration.ofSeconds(5);
+
+    private static final String[] CATEGORIES = {
+            "veg pizzas", "non veg pizzas", "pizza mania", "sides & dessert", "beverages"};
+    // Status changes before delivery and their waiting time range in seconds, WAIT_RANGES of the delivery service
+    private static final String[] STATUSES = {"ORDER_CONFIRMED", "BEING_PREPARED", "BEING_COOKED", "OUT_FOR_DELIVERY"};
+    private static final int[][] WAIT_SECONDS = {{6, 30}, {3, 12}, {12, 18}, {18, 60}};
+
+    private static final double SHOP_LAT = 12.978268;
+    private static final double SHOP_LON = 77.59408;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
+
+    private final Random random;
+    private final double[] productPrices = new double[PRODUCTS];
+    private final double[] userLats = new double[USERS];
+    private final double[] userLons = new double[USERS];
+    private final String[] ordersInTransit = new String[ORDERS_IN_TRANSIT];
+    private final PriorityQueue<Scheduled> scheduled =
+            new PriorityQueue<>(Comparator.comparing(Scheduled::at).thenComparingLong(Scheduled::sequence));
+
+    private Instant clock;
+    private Instant nextOrderAt;
+    private long sequence;
+
+    public SyntheticEvents(long seed, Instant start) {
+        random = new Random(seed);
+        clock = start;
+        nextOrderAt = start;
+        for (int index = 0; index < PRODUCTS; index++) {
+            productPrices[index] = 50 + random.nextInt(60) * 10;
+        }
+        for (int index = 0; index < USERS; index++) {
+            userLats[index] = SHOP_LAT + (random.nextDouble() - 0.5) / 5;
+            userLons[index] = SHOP_LON + (random.nextDouble() - 0.5) / 5;
+        }
+        for (int index = 0; index < ORDERS_IN_TRANSIT; index++) {
+            ordersInTransit[index] = orderId();
+        }
+    }
+
+    /* The CDC record of every product, to load the catalog before sending orders */
+    public List<Event> products() {
+        List<Event> products = new ArrayList<>(PRODUCTS);
+        for (int index = 0; index < PRODUCTS; index++) {
+            products.add(product(index));
+        }
+        return products;
+    }
+
+    /* A price change of a random product */
+    public Event productUpdate() {
+        int index = random.nextInt(PRODUCTS);
+        productPrices[index] = 50 + random.nextInt(60) * 10;
+        clock = clock.plusMillis(1);
+        return product(index);
+    }
+
+    /* A new order, without any of the statuses that would follow it */
+    public Event order() {
+        clock = clock.plusMillis(20 + random.nextInt(81));
+        return newOrder(clock, false);
+    }
+
+    /* A position of one of the orders in transit */
+    public Event deliveryStatus() {
+        clock = clock.plusMillis(5);
+        String orderId = ordersInTransit[random.nextInt(ORDERS_IN_TRANSIT)];
+        return deliveryStatus(orderId, clock, SHOP_LAT + (random.nextDouble() - 0.5) / 5,
+                SHOP_LON + (random.nextDouble() - 0.5) / 5, "IN_TRANSIT");
+    }
+
+    /* The next record of the interleaved order lifecycles */
+    public Event next() {
+        Scheduled first = scheduled.peek();
+        if (first != null && first.at().isBefore(nextOrderAt)) {
+            clock = first.at();
+            return scheduled.poll().event();
+        }
+        clock = nextOrderAt;
+        nextOrderAt = clock.plusMillis(20 + random.nextInt(81));
+        return newOrder(clock, true);
+    }
+
+    private Event newOrder(Instant createdAt, boolean withLifecycle) {
+        String orderId = orderId();
+        int user = random.nextInt(USERS);
+        int items = 1 + random.nextInt(10);
+
+        StringBuilder value = new StringBuilder(128 + 64 * items)
+                .append("{\"id\":\"").append(orderId)
+                .append("\",\"createdAt\":\"").append(TIMESTAMP_FORMAT.format(createdAt))
+                .append("\",\"userId\":").append(user)
+                .append(",\"items\":[");
+        double price = 0;
+        for (int item = 0; item < items; item++) {
+            int product = random.nextInt(PRODUCTS);
+            int quantity = 1 + random.nextInt(5);
+            price += quantity * productPrices[product];
+            if (item > 0) {
+                value.append(',');
+            }
+            value.append("{\"productId\":\"").append(product + 1)
+                    .append("\",\"quantity\":").append(quantity)
+                    .append(",\"price\":").append(productPrices[product])
+                    .append('}');
+        }
+        value.append("],\"price\":").append(price)
+                .append(",\"deliveryLat\":\"").append(userLats[user])
+                .append("\",\"deliveryLon\":\"").append(userLons[user])
+                .append("\",\"status\":\"PLACED_ORDER\"}");
+
+        if (withLifecycle) {
+            scheduleLifecycle(orderId, createdAt, user);
+        }
+        return event(Kind.ORDER, orderId, value, createdAt);
+    }
+
+    private void scheduleLifecycle(String orderId, Instant createdAt, int user) {
+        schedule(status(orderId, createdAt, "PLACED_ORDER"));
+
+        Instant statusAt = createdAt;
+        for (int index = 0; index < STATUSES.length; index++) {
+            int[] wait = WAIT_SECONDS[index];
+            statusAt = statusAt.plusSeconds(wait[0] + random.nextInt(wait[1] - wait[0] + 1));
+            schedule(status(orderId, statusAt, STATUSES[index]));
+        }
+
+        // Positions on the straight line from the shop to the user, then the final status
+        int positions = 12 + random.nextInt(25);
+        for (int position = 0; position < positions; position++) {
+            double progress = (double) position / positions;
+            statusAt = statusAt.plus(POSITION_INTERVAL);
+            schedule(deliveryStatus(orderId, statusAt,
+                    SHOP_LAT + (userLats[user] - SHOP_LAT) * progress,
+                    SHOP_LON + (userLons[user] - SHOP_LON) * progress,
+                    "IN_TRANSIT"));
+        }
+        statusAt = statusAt.plus(POSITION_INTERVAL);
+        schedule(deliveryStatus(orderId, statusAt, userLats[user], userLons[user], "DELIVERED"));
+        schedule(status(orderId, statusAt, "DELIVERED"));
+    }
+
+    private Event status(String orderId, Instant updatedAt, String status) {
+        StringBuilder value = new StringBuilder(128)
+                .append("{\"id\":\"").append(orderId)
+                .append("\",\"updatedAt\":\"").append(TIMESTAMP_FORMAT.format(updatedAt))
+                .append("\",\"status\":\"").append(status)
+                .append("\"}");
+        return event(Kind.STATUS, orderId, value, updatedAt);
+    }
+
+    private Event deliveryStatus(String orderId, Instant updatedAt, double lat, double lon, String status) {
+        StringBuilder value = new StringBuilder(160)
+                .append("{\"id\":\"").append(orderId)
+                .append("\",\"updatedAt\":\"").append(TIMESTAMP_FORMAT.format(updatedAt))
+                .append("\",\"deliveryLat\":\"").append(lat)
+                .append("\",\"deliveryLon\":\"").append(lon)
+                .append("\",\"status\":\"").append(status)
+                .append("\"}");
+        return event(Kind.DELIVERY, orderId, value, updatedAt);
+    }
+
+    private Event product(int index) {
+        int id = index + 1;
+        StringBuilder key = new StringBuilder(32)
+                .append("{\"payload\":{\"id\":").append(id).append("}}");
+        StringBuilder value = new StringBuilder(320)
+                .append("{\"payload\":{\"before\":null,\"after\":{\"id\":").append(id)
+                .append(",\"name\":\"Product ").append(id)
+                .append("\",\"description\":\"Description of product ").append(id)
+                .append("\",\"category\":\"").append(CATEGORIES[index % CATEGORIES.length])
+                .append("\",\"price\":").append(productPrices[index])
+                .append(",\"image\":\"https://oreil.ly/product-").append(id)
+                .append("\",\"created_at\":\"2022-12-05T16:56:02Z\",\"updated_at\":").append(clock.toEpochMilli())
+                .append("}}}");
+        return new Event(Kind.PRODUCT, key.toString().getBytes(StandardCharsets.UTF_8),
+                value.toString().getBytes(StandardCharsets.UTF_8), clock);
+    }
+
+    private void schedule(Event event) {
+        scheduled.add(new Scheduled(event, event.timestamp(), sequence++));
+    }
+
+    private String orderId() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private static Event event(Kind kind, String key, StringBuilder value, Instant timestamp) {
+        return new Event(kind, key.getBytes(StandardCharsets.UTF_8),
+                value.toString().getBytes(StandardCharsets.UTF_8), timestamp);
+    }
+
+    private record Scheduled(Event event, Instant at, long sequence) {
+    }
+}
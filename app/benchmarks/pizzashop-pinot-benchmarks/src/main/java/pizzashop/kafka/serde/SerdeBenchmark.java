@@ -0,0 +1,175 @@
+package pizzashop.kafka.serde;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.SyntheticEvents;
+import pizzashop.kafka.model.HydratedOrderItem;
+import pizzashop.kafka.model.OrderItemWithContext;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.models.Order;
+import pizzashop.models.Product;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+Serialization and deserialization of every record type that goes through an internal topic or a state store, in the
+two INTERNAL_SERDE_FORMAT formats and with the timestamps of the two EVENT_TIMESTAMPS modes. Records are built from a
+synthetic order, so their size is that of a typical one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SerdeBenchmark {
+    private static final String TOPIC = "benchmark";
+
+    @Param({"json", "binary"})
+    String format;
+
+    @Param({"string", "epoch"})
+    String timestamps;
+
+    private Case<Order> order;
+    private Case<OrderItemWithContext> orderItemWithContext;
+    private Case<HydratedOrderItem> hydratedOrderItem;
+    private Case<OrderStatus> orderStatus;
+    private Case<TrackedOrder> trackedOrder;
+
+    @Setup
+    public void setup() {
+        boolean binary = format.equals("binary");
+        SyntheticEvents events = new SyntheticEvents(42, Instant.parse("2022-10-17T13:00:00Z"));
+
+        boolean epoch = timestamps.equals("epoch");
+        Order value = new JsonDeserializer<>(Order.class).deserialize(TOPIC, events.order().value());
+        if (epoch) {
+            value.createdAtMicros = EventTime.parseMicros(value.createdAt);
+            value.createdAt = null;
+        }
+        order = new Case<>(binary ? BinarySerdes.Order() : json(Order.class), value);
+
+        orderItemWithContext = new Case<>(
+                binary ? BinarySerdes.OrderItemWithContext() : new OrderItemWithContextSerde(),
+                new OrderItemWithContext(value.id, value.createdAt, value.createdAtMicros, value.items.get(0)));
+
+        Product product = new Product();
+        product.id = value.items.get(0).productId;
+        product.name = "Moroccan Spice Pasta Pizza - Veg";
+        product.description = "A pizza with a combination of Harissa sauce & delicious pasta.";
+        product.category = "veg pizzas";
+        product.image = "https://oreil.ly/LCGSv";
+        product.price = 335;
+        hydratedOrderItem = new Case<>(binary ? BinarySerdes.HydratedOrderItem() : json(HydratedOrderItem.class),
+                new HydratedOrderItem(value.id, value.createdAt, value.createdAtMicros, product,
+                        value.items.get(0)));
+
+        OrderStatus status = new OrderStatus();
+        status.id = value.id;
+        status.status = "BEING_COOKED";
+        status.updatedAt = "2022-10-17T13:30:30.739917";
+        if (epoch) {
+            status.updatedAtMicros = EventTime.parseMicros(status.updatedAt);
+            status.updatedAt = null;
+        }
+        orderStatus = new Case<>(binary ? BinarySerdes.OrderStatus() : json(OrderStatus.class), status);
+
+        TrackedOrder tracked = new TrackedOrder();
+        tracked.order = value;
+        tracked.status = status.status;
+        tracked.updatedAtMicros = 1666013430739917L;
+        tracked.enteredAt = 1666013430739917L;
+        tracked.itemsPublished = true;
+        tracked.expiresAt = 1666035030739L;
+        trackedOrder = new Case<>(binary ? BinarySerdes.TrackedOrder() : json(TrackedOrder.class), tracked);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() {
+        return order.serialize();
+    }
+
+    @Benchmark
+    public Order deserializeOrder() {
+        return order.deserialize();
+    }
+
+    @Benchmark
+    public byte[] serializeOrderItemWithContext() {
+        return orderItemWithContext.serialize();
+    }
+
+    @Benchmark
+    public OrderItemWithContext deserializeOrderItemWithContext() {
+        return orderItemWithContext.deserialize();
+    }
+
+    @Benchmark
+    public byte[] serializeHydratedOrderItem() {
+        return hydratedOrderItem.serialize();
+    }
+
+    @Benchmark
+    public HydratedOrderItem deserializeHydratedOrderItem() {
+        return hydratedOrderItem.deserialize();
+    }
+
+    @Benchmark
+    public byte[] serializeOrderStatus() {
+        return orderStatus.serialize();
+    }
+
+    @Benchmark
+    public OrderStatus deserializeOrderStatus() {
+        return orderStatus.deserialize();
+    }
+
+    @Benchmark
+    public byte[] serializeTrackedOrder() {
+        return trackedOrder.serialize();
+    }
+
+    @Benchmark
+    public TrackedOrder deserializeTrackedOrder() {
+        return trackedOrder.deserialize();
+    }
+
+    private static <T> Serde<T> json(Class<T> type) {
+        return Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(type));
+    }
+
+    private static final class Case<T> {
+        private final Serde<T> serde;
+        private final T value;
+        private final byte[] bytes;
+
+        private Case(Serde<T> serde, T value) {
+            this.serde = serde;
+            this.value = value;
+            this.bytes = serde.serializer().serialize(TOPIC, value);
+        }
+
+        private byte[] serialize() {
+            return serde.serializer().serialize(TOPIC, value);
+        }
+
+        private T deserialize() {
+            return serde.deserializer().deserialize(TOPIC, bytes);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package pizzashop;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+Dashboard summaries pushed to every /orders/stream subscriber.
+
+One ticker computes the overview, orders per minute and popular summaries per tick, whatever the number of viewers,
+and broadcasts the result already serialized. Only the sections that changed since the previous tick are sent, with a
+full snapshot every snapshotEvery ticks. Ticks are numbered and carry the full state they were computed from, so each
+subscriber starts from a snapshot of the tick it starts at and applies the deltas of the following ones. A subscriber
+that can't keep up misses ticks instead of buffering them, and gets a snapshot of the next tick it sees, so a section
+never stays stale behind a dropped delta.
+
+The ticker runs while there's at least one subscriber.
+ */
+@ApplicationScoped
+public class DashboardFeed {
+    private static final Logger LOG = Logger.getLogger(DashboardFeed.class);
+
+    static final String OVERVIEW = "overview";
+    static final String ORDERS_PER_MINUTE = "ordersPerMinute";
+    static final String POPULAR = "popular";
+
+    @ConfigProperty(name = "pizzashop.stream.tick", defaultValue = "1s")
+    Duration tick;
+
+    @ConfigProperty(name = "pizzashop.stream.snapshot-every", defaultValue = "30")
+    int snapshotEvery;
+
+    @Inject
+    OrdersResource ordersResource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private Multi<Tick> ticks;
+    // last tick computed, where new subscribers start
+    private volatile Tick latest;
+
+    @PostConstruct
+    void init() {
+        ticks = Multi.createFrom().ticks().every(tick)
+                // a tick that comes while the previous one is still being computed is skipped
+                .onOverflow().drop()
+                .onItem().transformToUniAndConcatenate(tick -> summaries()
+                        .onFailure().invoke(failure -> LOG.warn("Failed to compute the dashboard summaries", failure))
+                        .onFailure().recoverWithNull())
+                .map(this::tick)
+                .broadcast().withCancellationAfterLastSubscriberDeparture().toAtLeast(1);
+    }
+
+    public Multi<String> subscribe() {
+        return Multi.createFrom().deferred(() -> {
+            Subscription subscription = new Subscription();
+            Multi<Tick> live = ticks.onOverflow().drop();
+            Tick start = latest;
+            Multi<Tick> all = start == null
+                    ? live
+                    : Multi.createBy().concatenating().streams(Multi.createFrom().item(start), live);
+            return all.map(subscription::next)
+                    .filter(Optional::isPresent)
+                    .map(Optional::get);
+        });
+    }
+
+    private Uni<ObjectNode> summaries() {
+        return Uni.combine().all().unis(
+                        ordersResource.ordersSummary(),
+                        ordersResource.ordersPerMinuteRows(),
+                        ordersResource.popularSummary())
+                .asTuple()
+                .map(results -> {
+                    ObjectNode summaries = objectMapper.createObjectNode();
+                    summaries.set(OVERVIEW, objectMapper.valueToTree(results.getItem1()));
+                    summaries.set(ORDERS_PER_MINUTE, objectMapper.valueToTree(results.getItem2()));
+                    summaries.set(POPULAR, objectMapper.valueToTree(results.getItem3()));
+                    return summaries;
+                });
+    }
+
+    /* Called sequentially by the ticker */
+    Tick tick(ObjectNode summaries) {
+        Tick previous = latest;
+        long sequence = previous == null ? 0 : previous.sequence() + 1;
+        String event;
+        if (previous == null || sequence % snapshotEvery == 0) {
+            event = serialize("snapshot", summaries);
+        } else {
+            ObjectNode changed = objectMapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> sections = summaries.fields();
+            while (sections.hasNext()) {
+                Map.Entry<String, JsonNode> section = sections.next();
+                if (!section.getValue().equals(previous.summaries().get(section.getKey()))) {
+                    changed.set(section.getKey(), section.getValue());
+                }
+            }
+            event = changed.isEmpty() ? null : serialize("delta", changed);
+        }
+        Tick tick = new Tick(sequence, summaries, event);
+        latest = tick;
+        return tick;
+    }
+
+    private String serialize(String type, ObjectNode sections) {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("type", type);
+        event.setAll(sections);
+        return event.toString();
+    }
+
+    /* A computed tick, event is what subscribers that saw the previous tick get, null when nothing changed */
+    record Tick(long sequence, ObjectNode summaries, String event) {
+    }
+
+    /* Events of one subscriber, a snapshot whenever the tick it gets doesn't follow the last one it got */
+    class Subscription {
+        private long lastSequence = -1;
+
+        Optional<String> next(Tick tick) {
+            if (tick.sequence() <= lastSequence) {
+                // already covered by the tick the subscriber started at
+                return Optional.empty();
+            }
+            boolean missed = lastSequence < 0 || tick.sequence() != lastSequence + 1;
+            lastSequence = tick.sequence();
+            if (missed) {
+                return Optional.of(serialize("snapshot", tick.summaries()));
+            }
+            return Optional.ofNullable(tick.event());
+        }
+    }
+}
@@ -1,100 +1,164 @@
 package pizzashop;
 
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.pinot.client.Connection;
-import org.apache.pinot.client.ConnectionFactory;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
 import org.apache.pinot.client.ResultSet;
-import org.apache.pinot.client.ResultSetGroup;
-import org.jooq.SQLDialect;
-import org.jooq.impl.DSL;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.geo.DeliveryIndex;
+import pizzashop.kafka.geo.Polygon;
+import pizzashop.kafka.popular.PopularityQueries;
+import pizzashop.kafka.status.OrderStatusQueries;
 import pizzashop.models.*;
-
-
+import pizzashop.pinot.PinotClient;
+import pizzashop.pinot.PinotTimestamps;
+import pizzashop.pinot.Query;
+import pizzashop.pinot.QueryCache;
+import pizzashop.pinot.QueryTemplates;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static org.jooq.impl.DSL.*;
-
 @ApplicationScoped
 @Path("/orders")
 public class OrdersResource {
 
-    private Connection connection = ConnectionFactory
-            .fromHostList(System.getenv().getOrDefault("PINOT_BROKER",  "localhost:8099"));
+    @Inject
+    QueryCache queryCache;
 
-    @GET
-    @Path("/overview")
-    public Response overview() {
-        ResultSet resultSet = runQuery(connection, "select count(*) from orders limit 10");
-        int totalOrders = resultSet.getInt(0);
+    @Inject
+    PinotClient pinotClient;
+
+    // The dashboard polls these endpoints every second, results are cached for the granularity of their time buckets
+    @ConfigProperty(name = "pizzashop.cache.overview-ttl", defaultValue = "1s")
+    Duration overviewTtl;
 
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        count()
-                                .filterWhere("ts > ago('PT1M')")
-                                .as("events1Min"),
+    @ConfigProperty(name = "pizzashop.cache.orders-per-minute-ttl", defaultValue = "60s")
+    Duration ordersPerMinuteTtl;
 
-                        count()
-                                .filterWhere("ts <= ago('PT1M') AND ts > ago('PT2M')")
-                                .as("events1Min2Min"),
+    @ConfigProperty(name = "pizzashop.cache.popular-ttl", defaultValue = "1s")
+    Duration popularTtl;
 
-                        sum(field("price").coerce(Long.class))
-                                .filterWhere("ts > ago('PT1M')")
-                                .as("total1Min"),
+    @ConfigProperty(name = "pizzashop.cache.statuses-ttl", defaultValue = "1s")
+    Duration statusesTtl;
 
-                        sum(field("price").coerce(Long.class))
-                                .filterWhere("ts <= ago('PT1M') AND ts > ago('PT2M')")
-                                .as("total1Min2Min")
+    @ConfigProperty(name = "pizzashop.popular.local-store", defaultValue = "true")
+    boolean localPopularStore;
 
-                ).from("orders")
-                .getSQL();
+    @ConfigProperty(name = "pizzashop.delayed.local-index", defaultValue = "true")
+    boolean localDeliveryIndex;
 
-        //System.out.println(query);
+    @ConfigProperty(name = "pizzashop.statuses.local-store", defaultValue = "true")
+    boolean localStatusStore;
 
-        ResultSet summaryResults = runQuery(connection, query);
+    @Inject
+    OrderStatusQueries orderStatusQueries;
 
-        TimePeriod currentTimePeriod = new TimePeriod(
-                summaryResults.getLong(0, 0), summaryResults.getDouble(0, 2));
-        TimePeriod previousTimePeriod = new TimePeriod(
-                summaryResults.getLong(0, 1), summaryResults.getDouble(0, 3));
+    @Inject
+    PopularityQueries popularityQueries;
 
-        OrdersSummary ordersSummary = new OrdersSummary(
-                totalOrders, currentTimePeriod, previousTimePeriod
-        );
+    @Inject
+    DeliveryIndex deliveryIndex;
 
-        return Response.ok(ordersSummary).build();
+    @Inject
+    DashboardFeed dashboardFeed;
+
+    /*
+    Server-sent events with the overview, orders per minute and popular summaries, computed once per tick for all the
+    subscribers. The first event is a full snapshot, the following ones only carry the sections that changed.
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<String> stream() {
+        return dashboardFeed.subscribe();
     }
 
+    @GET
+    @Path("/overview")
+    public Uni<Response> overview() {
+        return ordersSummary().map(ordersSummary -> Response.ok(ordersSummary).build());
+    }
+
+    Uni<OrdersSummary> ordersSummary() {
+        return Uni.combine().all().unis(
+                        runQuery(QueryTemplates.OVERVIEW_TOTAL.bind(), overviewTtl),
+                        runQuery(QueryTemplates.OVERVIEW_SUMMARY.bind(), overviewTtl))
+                .asTuple()
+                .map(results -> {
+                    int totalOrders = results.getItem1().getInt(0);
+                    ResultSet summaryResults = results.getItem2();
+
+                    TimePeriod currentTimePeriod = new TimePeriod(
+                            summaryResults.getLong(0, 0), summaryResults.getDouble(0, 2));
+                    TimePeriod previousTimePeriod = new TimePeriod(
+                            summaryResults.getLong(0, 1), summaryResults.getDouble(0, 3));
+
+                    OrdersSummary ordersSummary = new OrdersSummary(
+                            totalOrders, currentTimePeriod, previousTimePeriod
+                    );
+
+                    return ordersSummary;
+                });
+    }
+
+    /*
+    Closed minutes never change, so they are queried separately from the current one: the closed minutes query is
+    bounded by literal timestamps and cached until the next minute starts, only the current minute is re-read from the
+    broker every second.
+     */
     @GET
     @Path("/ordersPerMinute")
-    public Response ordersPerMinute() {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("ToDateTime(DATETRUNC('MINUTE', ts), 'yyyy-MM-dd HH:mm:ss')")
-                                .as("dateMin"),
-                        count(field("*")),
-                        sum(field("price").coerce(Long.class))
-                )
-                .from("orders")
-                .groupBy(field("dateMin"))
-                .orderBy(field("dateMin"))
-                .$where(field("dateMin").greaterThan(field("ago('PT1H')")))
-                .$limit(DSL.inline(60))
-                .getSQL();
-
-        ResultSet summaryResults = runQuery(connection, query);
+    public Uni<Response> ordersPerMinute() {
+        return ordersPerMinuteRows().map(rows -> Response.ok(rows).build());
+    }
 
-        int rowCount = summaryResults.getRowCount();
+    Uni<List<SummaryRow>> ordersPerMinuteRows() {
+        Instant currentMinute = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        Instant firstMinute = currentMinute.minus(59, ChronoUnit.MINUTES);
+
+        return Uni.combine().all().unis(
+                        runQuery(QueryTemplates.ORDERS_PER_MINUTE_CLOSED.bind(Map.of(
+                                "from", firstMinute.toEpochMilli(),
+                                "to", currentMinute.toEpochMilli()
+                        )), ordersPerMinuteTtl),
+                        runQuery(QueryTemplates.ORDERS_PER_MINUTE_OPEN.bind(
+                                "from", currentMinute.toEpochMilli()
+                        ), overviewTtl))
+                .asTuple()
+                .map(results -> {
+                    List<SummaryRow> rows = new ArrayList<>();
+                    addSummaryRows(rows, results.getItem1());
+                    addSummaryRows(rows, results.getItem2());
+
+                    return rows;
+                });
+    }
 
-        List<SummaryRow> rows = new ArrayList<>();
+    static void addSummaryRows(List<SummaryRow> rows, ResultSet summaryResults) {
+        int rowCount = summaryResults.getRowCount();
         for (int index = 0; index < rowCount; index++) {
             rows.add(new SummaryRow(
                     summaryResults.getString(index, 0),
@@ -102,29 +166,52 @@ public class OrdersResource {
                     summaryResults.getDouble(index, 2)
             ));
         }
-
-        return Response.ok(rows).build();
     }
 
+    /*
+    Popular products and categories of the last minute come from the sketches kept by the streams topology, with an
+    estimate of the distinct orders placed. Pinot is only queried when the local store can't be read, including once
+    other instances host some of its partitions, or pizzashop.popular.local-store is turned off.
+     */
     @GET
     @Path("/popular")
-    public Response popular() {
-        String itemQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("product.name").as("product"),
-                        field("product.image").as("image"),
-                        field("distinctcount(orderId)").as("orders"),
-                        sum(field("orderItem.quantity").coerce(Long.class)).as("quantity")
-                )
-                .from("order_items_enriched")
-                .where(field("ts").greaterThan(field("ago('PT1M')")))
-                .groupBy(field("product"), field("image"))
-                .orderBy(field("count(*)").desc())
-                .limit(DSL.inline(5))
-                .getSQL();
-
-        ResultSet itemsResult = runQuery(connection, itemQuery);
+    public Uni<Response> popular() {
+        return popularSummary().map(popular -> Response.ok(popular).build());
+    }
+
+    Uni<Map<String, Object>> popularSummary() {
+        if (!localPopularStore) {
+            return pinotPopular();
+        }
+        return popularityQueries.popularity(Instant.now(), Duration.ofMinutes(1))
+                .map(sketch -> {
+                    List<PopularItem> popularItems = sketch.products().top(5).stream()
+                            .map(counter -> new PopularItem(
+                                    counter.key(), counter.label(), counter.count(), counter.quantity()))
+                            .toList();
+                    List<PopularCategory> popularCategories = sketch.categories().top(5).stream()
+                            .map(counter -> new PopularCategory(counter.key(), counter.count(), counter.quantity()))
+                            .toList();
+
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("items", popularItems);
+                    result.put("categories", popularCategories);
+                    result.put("orders", sketch.orders().estimate());
+
+                    return result;
+                })
+                .onFailure(InvalidStateStoreException.class).recoverWithUni(this::pinotPopular);
+    }
+
+    private Uni<Map<String, Object>> pinotPopular() {
+        return Uni.combine().all().unis(
+                        runQuery(QueryTemplates.POPULAR_ITEMS.bind(), popularTtl),
+                        runQuery(QueryTemplates.POPULAR_CATEGORIES.bind(), popularTtl))
+                .asTuple()
+                .map(results -> popular(results.getItem1(), results.getItem2()));
+    }
 
+    static Map<String, Object> popular(ResultSet itemsResult, ResultSet categoryResult) {
         List<PopularItem> popularItems = new ArrayList<>();
         for (int index = 0; index < itemsResult.getRowCount(); index++) {
             popularItems.add(new PopularItem(
@@ -135,21 +222,6 @@ public class OrdersResource {
             ));
         }
 
-        String categoryQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("product.category").as("category"),
-                        field("distinctcount(orderId)").as("orders"),
-                        sum(field("orderItem.quantity").coerce(Long.class)).as("quantity")
-                )
-                .from("order_items_enriched")
-                .where(field("ts").greaterThan(field("ago('PT1M')")))
-                .groupBy(field("category"))
-                .orderBy(field("count(*)").desc())
-                .limit(DSL.inline(5))
-                .getSQL();
-
-        ResultSet categoryResult = runQuery(connection, categoryQuery);
-
         List<PopularCategory> popularCategories = new ArrayList<>();
         for (int index = 0; index < categoryResult.getRowCount(); index++) {
             popularCategories.add(new PopularCategory(
@@ -163,7 +235,7 @@ public class OrdersResource {
         result.put("items", popularItems);
         result.put("categories", popularCategories);
 
-        return Response.ok(result).build();
+        return result;
     }
 
     /*
@@ -204,33 +276,25 @@ public class OrdersResource {
      */
     @GET
     @Path("/{orderId}")
-    public Response order(@PathParam("orderId") String orderId) {
-        String userQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(field("userId"))
-                .from("orders")
-                .where(field("id").eq(field("'" + orderId + "'")))
-                .getSQL();
-
-        ResultSet userResultSet = runQuery(connection, userQuery);
+    public Uni<Response> order(@PathParam("orderId") String orderId) {
+        // The four queries are independent, so they go to the broker at the same time
+        return Uni.combine().all().unis(
+                        runQuery(QueryTemplates.ORDER_USER.bind("orderId", orderId)),
+                        runQuery(QueryTemplates.ORDER_PRODUCTS.bind("orderId", orderId)),
+                        runQuery(QueryTemplates.ORDER_STATUSES.bind("orderId", orderId)),
+                        runQuery(QueryTemplates.ORDER_DELIVERY_STATUS.bind("orderId", orderId)))
+                .asTuple()
+                .map(results -> Response.ok(orderDetails(
+                        results.getItem1(), results.getItem2(), results.getItem3(), results.getItem4())).build());
+    }
 
+    static Map<String, Object> orderDetails(ResultSet userResultSet, ResultSet productsResultSet,
+                                            ResultSet statusesResultSet, ResultSet deliveryStatusResultSet) {
         Stream<Map<String, Object>> userInfo = IntStream.range(0, userResultSet.getRowCount())
                 .mapToObj(index -> Map.of(
                         "id", userResultSet.getString(index, 0)
                 ));
 
-        String productsQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("product.name").as("product"),
-                        field("product.price").as("price"),
-                        field("product.image").as("image"),
-                        field("orderItem.quantity").as("quantity")
-                )
-                .from("order_items_enriched")
-                .where(field("orderId").eq(field("'" + orderId + "'")))
-                .getSQL();
-
-        ResultSet productsResultSet = runQuery(connection, productsQuery);
-
         Stream<Map<String, Object>> products = IntStream.range(0, productsResultSet.getRowCount())
                 .mapToObj(index -> Map.of(
                         "product", productsResultSet.getString(index, 0),
@@ -239,38 +303,12 @@ public class OrdersResource {
                         "quantity", productsResultSet.getLong(index, 3)
                 ));
 
-        String statusesQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts"),
-                        field("status"),
-                        field("userId").as("image")
-                )
-                .from("orders_enriched")
-                .where(field("id").eq(field("'" + orderId + "'")))
-                .orderBy(field("ts").desc())
-                .option("option(skipUpsert=true)")
-                .getSQL();
-
-        ResultSet statusesResultSet = runQuery(connection, statusesQuery);
-
         Stream<Map<String, Object>> statuses = IntStream.range(0, statusesResultSet.getRowCount())
                 .mapToObj(index -> Map.of(
                         "timestamp", statusesResultSet.getString(index, 0),
                         "status", statusesResultSet.getString(index, 1)
                 ));
 
-        String deliveryStatusQuery = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts"),
-                        field("deliveryLat"),
-                        field("deliveryLon")
-                )
-                .from("delivery_statuses")
-                .where(field("id").eq(field("'" + orderId + "'")))
-                .getSQL();
-
-        ResultSet deliveryStatusResultSet = runQuery(connection, deliveryStatusQuery);
-
         Stream<Map<String, Object>> deliveryStatus = IntStream.range(0,
                         deliveryStatusResultSet.getRowCount())
                 .mapToObj(index -> Map.of(
@@ -285,119 +323,136 @@ public class OrdersResource {
                 "statuses", statuses
         ));
 
-        deliveryStatus.findFirst().ifPresent(stringObjectMap -> response.put("deliveryStatus", stringObjectMap));
+        deliveryStatus.findFirst().ifPresent(stringObjectMap ->
+                response.put("deliveryStatus", stringObjectMap));
 
-        return Response.ok(response).build();
+        return response;
     }
 
+    /*
+    Orders in transit within the area are looked up in the delivery index kept by the streams topology. Pinot is only
+    queried while the index is still loading, for areas that aren't a plain WKT POLYGON, or when
+    pizzashop.delayed.local-index is turned off.
+     */
     @GET
     @Path("/delayed/{area}")
-    public Response Delayed(@PathParam("area") String area) {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("ts"),
-                        field("id"),
-                        field("deliveryLat"),
-                        field("deliveryLon")
-                )
-                .from("delivery_statuses")
-                .where(field("status").eq(field("'" + "IN_TRANSIT" + "'")))
-                .and(field("ST_Contains(ST_GeomFromText('" + area + "'), toGeometry(location)) = 1")
-                        .coerce(Boolean.class))
-                .orderBy(field("ts"))
-                .getSQL();
-
-        ResultSet resultSet = runQuery(connection, query);
-
-        List<Map<String, Object>> rows = new ArrayList<>();
-        for (int index = 0; index < resultSet.getRowCount(); index++) {
-            rows.add(Map.of(
-                    "ts", resultSet.getString(index, 0),
-                    "id", resultSet.getString(index, 1),
-                    "deliveryLat", resultSet.getDouble(index, 2),
-                    "deliveryLon", resultSet.getDouble(index, 3)
-            ));
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<Map<String, Object>> Delayed(@PathParam("area") String area) {
+        if (localDeliveryIndex && deliveryIndex.isReady()) {
+            Polygon polygon = null;
+            try {
+                polygon = Polygon.parseWkt(area);
+            } catch (IllegalArgumentException e) {
+                // left to Pinot
+            }
+            if (polygon != null) {
+                return Multi.createFrom().iterable(deliveryIndex.within(polygon))
+                        .map(position -> Map.<String, Object>of(
+                                "ts", pinotTimestamp(position.updatedAt),
+                                "id", position.id,
+                                "deliveryLat", position.lat,
+                                "deliveryLon", position.lon
+                        ));
+            }
         }
 
-        return Response.ok(rows).build();
+        return runQuery(QueryTemplates.DELAYED.bind("area", area))
+                .onItem().transformToMulti(resultSet -> Multi.createFrom().range(0, resultSet.getRowCount())
+                        .map(index -> Map.<String, Object>of(
+                                "ts", resultSet.getString(index, 0),
+                                "id", resultSet.getString(index, 1),
+                                "deliveryLat", resultSet.getDouble(index, 2),
+                                "deliveryLon", resultSet.getDouble(index, 3)
+                        )));
     }
 
+    /* updatedAt the way delivery_statuses.ts comes back from Pinot, which parses it as UTC to the millisecond */
+    private static String pinotTimestamp(String updatedAt) {
+        long micros = EventTime.parseMicros(updatedAt);
+        return micros == EventTime.UNKNOWN ? updatedAt : PinotTimestamps.format(TimeUnit.MICROSECONDS.toMillis(micros));
+    }
+
+    /*
+    Time in status and stuck orders are answered from the status index materialized by EnrichedOrdersTopology. Pinot
+    is only queried when the local store can't be read, e.g. while the topology is rebalancing or once other instances
+    host some of its partitions, or when pizzashop.statuses.local-store is turned off.
+     */
     @GET
     @Path("/statuses")
-    public Response statuses() {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("status"),
-                        min(field("(now() - ts) / 1000")),
-                        field("percentile((now() - ts) / 1000, 50)"),
-                        avg(field("(now() - ts) / 1000").coerce(Long.class)),
-                        field("percentile((now() - ts) / 1000, 75)"),
-                        field("percentile((now() - ts) / 1000, 90)"),
-                        field("percentile((now() - ts) / 1000, 99)"),
-                        max(field("(now() - ts) / 1000"))
-                )
-                .from("orders_enriched")
-                .where(field("status NOT IN ('DELIVERED', 'OUT_FOR_DELIVERY')").coerce(Boolean.class))
-                .groupBy(field("status"))
-                .getSQL();
-
-        ResultSet resultSet = runQuery(connection, query);
-
-        List<Map<String, Object>> rows = new ArrayList<>();
-        for (int index = 0; index < resultSet.getRowCount(); index++) {
-            rows.add(Map.of(
-                    "status", resultSet.getString(index, 0),
-                    "min", resultSet.getDouble(index, 1),
-                    "percentile50", resultSet.getDouble(index, 2),
-                    "avg", resultSet.getDouble(index, 3),
-                    "percentile75", resultSet.getDouble(index, 4),
-                    "percentile90", resultSet.getDouble(index, 5),
-                    "percentile99", resultSet.getDouble(index, 6),
-                    "max", resultSet.getDouble(index, 7)
-            ));
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<StatusTimings> statuses() {
+        if (!localStatusStore) {
+            return pinotStatuses();
         }
+        return orderStatusQueries.statusTimings(Instant.now(), Set.of("DELIVERED", "OUT_FOR_DELIVERY"))
+                .onFailure(InvalidStateStoreException.class).recoverWithMulti(this::pinotStatuses);
+    }
 
-        return Response.ok(rows).build();
+    /*
+    Percentiles of the time orders spent in each status before moving on, read from the status histograms of the
+    streams topology. There is no Pinot fallback, a 503 is returned while the histograms can't all be read locally.
+     */
+    @GET
+    @Path("/statuses/latencies")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<StatusLatency> statusLatencies(@QueryParam("minutes") @DefaultValue("5") int minutes) {
+        return orderStatusQueries.statusLatencies(Instant.now(), Duration.ofMinutes(minutes))
+                .onItem().transformToMulti(items -> Multi.createFrom().iterable(items));
     }
 
     @GET
     @Path("/stuck/{orderStatus}/{stuckTimeInMillis}")
-    public Response stuckOrders(
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<StuckOrder> stuckOrders(
             @PathParam("orderStatus") String orderStatus,
             @PathParam("stuckTimeInMillis") Long stuckTimeInMillis
     ) {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("id"),
-                        field("price"),
-                        field("ts"),
-                        field("(now() - ts) / 1000")
-                )
-                .from("orders_enriched")
-                .where(field("status").eq(field("'" + orderStatus + "'")))
-                .and(field("(now() - ts) > " + stuckTimeInMillis).coerce(Boolean.class))
-                .orderBy(field("ts"))
-                .getSQL();
-
-        ResultSet resultSet = runQuery(connection, query);
-
-        List<Map<String, Object>> rows = new ArrayList<>();
-        for (int index = 0; index < resultSet.getRowCount(); index++) {
-            rows.add(Map.of(
-                    "id", resultSet.getString(index, 0),
-                    "price", resultSet.getDouble(index, 1),
-                    "ts", resultSet.getString(index, 2),
-                    "timeInStatus", resultSet.getDouble(index, 3)
-            ));
+        if (!localStatusStore) {
+            return pinotStuckOrders(orderStatus, stuckTimeInMillis);
         }
+        return orderStatusQueries.stuckOrders(orderStatus, stuckTimeInMillis, Instant.now())
+                .onFailure(InvalidStateStoreException.class)
+                .recoverWithMulti(() -> pinotStuckOrders(orderStatus, stuckTimeInMillis));
+    }
 
-        return Response.ok(rows).build();
+    private Multi<StatusTimings> pinotStatuses() {
+        return runQuery(QueryTemplates.STATUSES.bind(), statusesTtl)
+                .onItem().transformToMulti(resultSet -> Multi.createFrom().range(0, resultSet.getRowCount())
+                        .map(index -> new StatusTimings(
+                                resultSet.getString(index, 0),
+                                resultSet.getDouble(index, 1),
+                                resultSet.getDouble(index, 2),
+                                resultSet.getDouble(index, 3),
+                                resultSet.getDouble(index, 4),
+                                resultSet.getDouble(index, 5),
+                                resultSet.getDouble(index, 6),
+                                resultSet.getDouble(index, 7))));
     }
 
+    private Multi<StuckOrder> pinotStuckOrders(String orderStatus, Long stuckTimeInMillis) {
+        Query query = QueryTemplates.STUCK_ORDERS.bind(Map.of(
+                "orderStatus", orderStatus,
+                "stuckTimeInMillis", stuckTimeInMillis
+        ));
+
+        return runQuery(query)
+                .onItem().transformToMulti(resultSet -> Multi.createFrom().range(0, resultSet.getRowCount())
+                        .map(index -> new StuckOrder(
+                                resultSet.getString(index, 0),
+                                resultSet.getDouble(index, 1),
+                                resultSet.getString(index, 2),
+                                resultSet.getDouble(index, 3))));
+    }
+
+    /*
+    Queries that can be sent together are composed with Uni.combine, which keeps the endpoint latency close to the
+    slowest single query.
+     */
+    private Uni<ResultSet> runQuery(Query query) {
+        return pinotClient.execute(query);
+    }
 
-    private static ResultSet runQuery(Connection connection, String query) {
-        System.out.println("Running the following query: " + query);
-        ResultSetGroup resultSetGroup = connection.execute(query);
-        return resultSetGroup.getResultSet(0);
+    private Uni<ResultSet> runQuery(Query query, Duration ttl) {
+        return queryCache.get(query, ttl, pinotClient::execute);
     }
 }
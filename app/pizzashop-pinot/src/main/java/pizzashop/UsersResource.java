@@ -1,86 +1,59 @@
 package pizzashop;
 
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.pinot.client.Connection;
-import org.apache.pinot.client.ConnectionFactory;
 import org.apache.pinot.client.ResultSet;
-import org.apache.pinot.client.ResultSetGroup;
-import org.jooq.SQLDialect;
-import org.jooq.impl.DSL;
+import pizzashop.pinot.PinotClient;
+import pizzashop.pinot.Query;
+import pizzashop.pinot.QueryTemplates;
 
 
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static org.jooq.impl.DSL.*;
-
 @ApplicationScoped
 @Path("/users")
 public class UsersResource {
-    private Connection connection = ConnectionFactory.fromHostList(System.getenv().getOrDefault("PINOT_BROKER",  "localhost:8099"));
+    @Inject
+    PinotClient pinotClient;
 
     @GET
     @Path("/{userId}/orders")
-    public Response userOrders(@PathParam("userId") String userId) {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("id"),
-                        field("price"),
-                        field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts")
-                )
-                .from("orders_enriched")
-                .where(field("userId").eq(field("'" + userId + "'")))
-                .orderBy(field("ts").desc())
-                .limit(DSL.inline(50))
-                .getSQL();
-
-        ResultSet resultSet = runQuery(connection, query);
-
-        List<Map<String, Object>> rows = new ArrayList<>();
-        for (int index = 0; index < resultSet.getRowCount(); index++) {
-            rows.add(Map.of(
-                    "id", resultSet.getString(index, 0),
-                    "price", resultSet.getDouble(index, 1),
-                    "ts", resultSet.getString(index, 2)
-            ));
-        }
-
-        return Response.ok(rows).build();
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<Map<String, Object>> userOrders(@PathParam("userId") String userId) {
+        return runQuery(QueryTemplates.USER_ORDERS.bind("userId", userId))
+                .onItem().transformToMulti(resultSet -> Multi.createFrom().range(0, resultSet.getRowCount())
+                        .map(index -> Map.<String, Object>of(
+                                "id", resultSet.getString(index, 0),
+                                "price", resultSet.getDouble(index, 1),
+                                "ts", resultSet.getString(index, 2)
+                        )));
     }
 
     @GET
     @Path("/")
-    public Response allUsers() {
-        String query = DSL.using(SQLDialect.POSTGRES)
-                .select(
-                        field("userId"),
-                        field("ts")
-                )
-                .from("orders")
-                .orderBy(field("ts").desc())
-                .limit(DSL.inline(50))
-                .getSQL();
-
-        ResultSet resultSet = runQuery(connection, query);
-
-        Stream<Map<String, Object>> rows = IntStream.range(0, resultSet.getRowCount())
-                .mapToObj(index -> Map.of("userId", resultSet.getString(index, 0)));
-
-        return Response.ok(rows).build();
+    public Uni<Response> allUsers() {
+        return runQuery(QueryTemplates.ALL_USERS.bind())
+                .map(resultSet -> {
+                    Stream<Map<String, Object>> rows = IntStream.range(0, resultSet.getRowCount())
+                            .mapToObj(index -> Map.of("userId", resultSet.getString(index, 0)));
+
+                    return Response.ok(rows).build();
+                });
     }
 
-    private static ResultSet runQuery(Connection connection, String query) {
-        System.out.println("Running the following query: " + query);
-        ResultSetGroup resultSetGroup = connection.execute(query);
-        return resultSetGroup.getResultSet(0);
+    private Uni<ResultSet> runQuery(Query query) {
+        return pinotClient.execute(query);
     }
 }
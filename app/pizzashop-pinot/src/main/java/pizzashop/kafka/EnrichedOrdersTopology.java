@@ -1,20 +1,33 @@
 package pizzashop.kafka;
 
 import io.debezium.serde.DebeziumSerdes;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.*;
 import org.apache.kafka.streams.kstream.*;
+import org.apache.kafka.streams.state.Stores;
+import pizzashop.kafka.catalog.ProductCatalog;
+import pizzashop.kafka.catalog.ProductCatalogUpdater;
+import pizzashop.kafka.geo.DeliveryIndex;
+import pizzashop.kafka.geo.DeliveryIndexUpdater;
+import pizzashop.kafka.model.DeliveryStatus;
 import pizzashop.kafka.model.EnrichedOrder;
 import pizzashop.kafka.model.HydratedOrderItem;
 import pizzashop.kafka.model.OrderItemWithContext;
 import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.popular.PopularityProcessor;
+import pizzashop.kafka.serde.BinarySerdes;
 import pizzashop.kafka.serde.JsonDeserializer;
 import pizzashop.kafka.serde.JsonSerializer;
 import pizzashop.kafka.serde.OrderItemWithContextSerde;
+import pizzashop.kafka.status.OrderStatusTracker;
 import pizzashop.models.Order;
 import pizzashop.models.Product;
 
@@ -25,6 +38,14 @@ import java.util.Properties;
 
 @ApplicationScoped
 public class EnrichedOrdersTopology {
+    public static final String PRODUCTS_STORE = "products-catalog";
+    public static final String DELIVERY_POSITIONS_STORE = "delivery-positions";
+
+    @Inject
+    DeliveryIndex deliveryIndex;
+
+    @Inject
+    MeterRegistry registry;
 
     @Produces
     public Topology buildTopology() {
@@ -33,9 +54,33 @@ public class EnrichedOrdersTopology {
         String productsTopic = System.getenv().getOrDefault("PRODUCTS_TOPIC",  "mysql-connector-1.pizzashop.products");
         String enrichedOrderItemsTopic = System.getenv().getOrDefault("ENRICHED_ORDER_ITEMS_TOPIC",  "enriched-order-items");
         String enrichedOrdersTopic = System.getenv().getOrDefault("ENRICHED_ORDERS_TOPIC", "enriched-orders");
+        String deliveryStatusesTopic = System.getenv().getOrDefault("DELIVERY_STATUSES_TOPIC", "deliveryStatuses");
+        // json or binary, the format of the records on internal repartition and changelog topics. Switching it
+        // requires resetting the application, as records already on those topics can't be read in the other format.
+        boolean binaryInternalTopics = System.getenv().getOrDefault("INTERNAL_SERDE_FORMAT", "json")
+                .equalsIgnoreCase("binary");
+        // How long an order is kept once delivered, and without any update while it's still open
+        Duration deliveredOrderTtl = Duration.ofMinutes(
+                Long.parseLong(System.getenv().getOrDefault("DELIVERED_ORDER_TTL_MINUTES", "60")));
+        Duration openOrderTtl = Duration.ofHours(
+                Long.parseLong(System.getenv().getOrDefault("OPEN_ORDER_TTL_HOURS", "6")));
+        // catalog or join, how order items are enriched with their product. The catalog mode replicates the products
+        // table into every instance and enriches items in the order's task, the join mode re-keys items by product id
+        // and joins them against the products KTable through a repartition topic.
+        boolean catalogEnrichment = System.getenv().getOrDefault("PRODUCT_ENRICHMENT", "catalog")
+                .equalsIgnoreCase("catalog");
+        // string or epoch, how order and status timestamps are handled. The epoch mode parses createdAt and updatedAt
+        // in the deserializers of orders and statuses and uses them as the event time of the records, see EventTime.
+        // Switching it moves windows from ingestion time to order time, and the other way round.
+        boolean epochTimestamps = System.getenv().getOrDefault("EVENT_TIMESTAMPS", "string")
+                .equalsIgnoreCase("epoch");
 
-        final Serde<Order> orderSerde = Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(Order.class));
-        OrderItemWithContextSerde orderItemWithContextSerde = new OrderItemWithContextSerde();
+        final Serde<Order> orderSerde = Serdes.serdeFrom(new JsonSerializer<>(), epochTimestamps
+                ? EventTime.parsing(new JsonDeserializer<>(Order.class))
+                : new JsonDeserializer<>(Order.class));
+        final Serde<OrderItemWithContext> orderItemWithContextSerde = binaryInternalTopics
+                ? BinarySerdes.OrderItemWithContext()
+                : new OrderItemWithContextSerde();
 
         Serde<String> productKeySerde = DebeziumSerdes.payloadJson(String.class);
         productKeySerde.configure(Collections.emptyMap(), true);
@@ -46,12 +91,29 @@ public class EnrichedOrdersTopology {
         final Serde<HydratedOrderItem> hydratedOrderItemsSerde = Serdes.serdeFrom(new JsonSerializer<>(),
                 new JsonDeserializer<>(HydratedOrderItem.class));
 
-        final Serde<OrderStatus> orderStatusSerde = Serdes.serdeFrom(new JsonSerializer<>(),
-                new JsonDeserializer<>(OrderStatus.class));
+        final Serde<OrderStatus> orderStatusSerde = Serdes.serdeFrom(new JsonSerializer<>(), epochTimestamps
+                ? EventTime.parsing(new JsonDeserializer<>(OrderStatus.class))
+                : new JsonDeserializer<>(OrderStatus.class));
+
+        final Serde<DeliveryStatus> deliveryStatusSerde = Serdes.serdeFrom(new JsonSerializer<>(),
+                new JsonDeserializer<>(DeliveryStatus.class));
 
         final Serde<EnrichedOrder> enrichedOrdersSerde = Serdes.serdeFrom(new JsonSerializer<>(),
                 new JsonDeserializer<>(EnrichedOrder.class));
 
+        // Serde of the order status tracker store and its changelog
+        final Serde<TrackedOrder> trackedOrderSerde = binaryInternalTopics
+                ? BinarySerdes.TrackedOrder()
+                : Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(TrackedOrder.class));
+        final Serde<OrderStatusEntry> orderStatusEntrySerde = binaryInternalTopics
+                ? BinarySerdes.OrderStatusEntry()
+                : Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(OrderStatusEntry.class));
+
+        // Records and end-to-end lag of the enrichment outputs and the stores, see StageMetrics
+        StageMetrics enrichedOrderItemsStage = new StageMetrics(registry, "enriched-order-items");
+        StageMetrics popularProductsStage = new StageMetrics(registry, "popular-products");
+        StageMetrics deliveryPositionsStage = new StageMetrics(registry, "delivery-positions");
+
         StreamsBuilder builder = new StreamsBuilder();
 
         /*
@@ -67,7 +129,11 @@ public class EnrichedOrdersTopology {
               "price": 45
             },
          */
-        var orders = builder.stream(ordersTopic, Consumed.with(Serdes.String(), orderSerde));
+        Consumed<String, Order> ordersConsumed = Consumed.with(Serdes.String(), orderSerde);
+        if (epochTimestamps) {
+            ordersConsumed = ordersConsumed.withTimestampExtractor(new EventTime());
+        }
+        var orders = builder.stream(ordersTopic, ordersConsumed);
         /*
         {
           "before": null,
@@ -83,7 +149,6 @@ public class EnrichedOrdersTopology {
           }
         }
          */
-        KTable<String, Product> products = builder.table(productsTopic, Consumed.with(productKeySerde, productSerde));
 
         /*
         {
@@ -122,18 +187,11 @@ public class EnrichedOrdersTopology {
           "status": "DELIVERED"
         }
          */
-        KStream<String, OrderStatus> orderStatuses = builder.stream(orderStatusesTopic,
-                Consumed.with(Serdes.String(), orderStatusSerde));
-
-        //flatten an array of order items
-        KStream<String, OrderItemWithContext> orderItems = orders.flatMap((key, order) -> {
-            ArrayList<KeyValue<String, OrderItemWithContext>> result = new ArrayList<>();
-            for (var item : order.items) {
-                OrderItemWithContext orderItemWithContext = new OrderItemWithContext(order.id, order.createdAt, item);
-                result.add(KeyValue.pair(item.productId, orderItemWithContext));
-            }
-            return result;
-        });
+        Consumed<String, OrderStatus> orderStatusesConsumed = Consumed.with(Serdes.String(), orderStatusSerde);
+        if (epochTimestamps) {
+            orderStatusesConsumed = orderStatusesConsumed.withTimestampExtractor(new EventTime());
+        }
+        KStream<String, OrderStatus> orderStatuses = builder.stream(orderStatusesTopic, orderStatusesConsumed);
 
         //The next step is to enrich each of those order item events with their associated product.
         /*
@@ -156,11 +214,69 @@ public class EnrichedOrdersTopology {
           }
         }
          */
-        orderItems.join(products,
-                        (orderItem, product) ->
-                                new HydratedOrderItem(orderItem.orderId, orderItem.createdAt, product, orderItem.orderItem),
-                        Joined.with(Serdes.String(), orderItemWithContextSerde, productSerde))
-        .to(enrichedOrderItemsTopic, Produced.with(Serdes.String(), hydratedOrderItemsSerde));
+        KStream<String, HydratedOrderItem> hydratedOrderItems;
+        if (catalogEnrichment) {
+            // The products table holds a few hundred rows, replicate it in memory rather than shuffling every item
+            ProductCatalog catalog = new ProductCatalog();
+            builder.addGlobalStore(
+                    Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(PRODUCTS_STORE), productKeySerde, productSerde)
+                            .withLoggingDisabled(),
+                    productsTopic,
+                    Consumed.with(productKeySerde, productSerde),
+                    () -> new ProductCatalogUpdater(PRODUCTS_STORE, catalog));
+
+            // The key is still changed to the product id. PopularityProcessor follows, but process() doesn't
+            // repartition and the processor keeps one sketch per task and bucket, merged when queried, so items of a
+            // product don't need to be co-partitioned
+            hydratedOrderItems = orders.flatMap((key, order) -> {
+                ArrayList<KeyValue<String, HydratedOrderItem>> result = new ArrayList<>(order.items.size());
+                long createdAt = EventTime.micros(order.createdAtMicros, order.createdAt);
+                for (var item : order.items) {
+                    Product product = catalog.get(item.productId);
+                    // Same semantics as the inner KTable join, items of unknown products are dropped
+                    if (product != null) {
+                        result.add(KeyValue.pair(item.productId,
+                                new HydratedOrderItem(order.id, order.createdAt, order.createdAtMicros, product,
+                                        item)));
+                        enrichedOrderItemsStage.record(createdAt);
+                    } else {
+                        enrichedOrderItemsStage.drop();
+                    }
+                }
+                return result;
+            });
+        } else {
+            KTable<String, Product> products = builder.table(productsTopic, Consumed.with(productKeySerde, productSerde));
+
+            //flatten an array of order items
+            KStream<String, OrderItemWithContext> orderItems = orders.flatMap((key, order) -> {
+                ArrayList<KeyValue<String, OrderItemWithContext>> result = new ArrayList<>();
+                for (var item : order.items) {
+                    OrderItemWithContext orderItemWithContext =
+                            new OrderItemWithContext(order.id, order.createdAt, order.createdAtMicros, item);
+                    result.add(KeyValue.pair(item.productId, orderItemWithContext));
+                }
+                return result;
+            });
+
+            hydratedOrderItems = orderItems.join(products,
+                            (orderItem, product) -> {
+                                enrichedOrderItemsStage.record(
+                                        EventTime.micros(orderItem.createdAtMicros, orderItem.createdAt));
+                                return new HydratedOrderItem(orderItem.orderId, orderItem.createdAt,
+                                        orderItem.createdAtMicros, product, orderItem.orderItem);
+                            },
+                            Joined.with(Serdes.String(), orderItemWithContextSerde, productSerde));
+        }
+        hydratedOrderItems.to(enrichedOrderItemsTopic, Produced.with(Serdes.String(), hydratedOrderItemsSerde));
+
+        // Heavy hitters of the products and categories ordered, and distinct orders, for the /orders/popular endpoint.
+        // Caching folds the updates of a bucket into one changelog record per commit.
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(PopularityProcessor.STORE, PopularityProcessor.RETENTION,
+                        PopularityProcessor.BUCKET, false),
+                Serdes.String(), BinarySerdes.PopularitySketch()).withCachingEnabled());
+        hydratedOrderItems.process(() -> new PopularityProcessor(popularProductsStage), PopularityProcessor.STORE);
 
         /*
         Output example:
@@ -168,19 +284,53 @@ public class EnrichedOrdersTopology {
         {"userId":"817","createdAt":"2022-10-17T13:30:07.739917", "status":"ORDER_CONFIRMED","price":4259}
         {"userId":"817","createdAt":"2022-10-17T13:30:20.739917", "status":"BEING_PREPARED","price":4259}
          */
-        orders.join(orderStatuses,
-                (order, orderStatus) -> {
-                    EnrichedOrder enrichedOrder = new EnrichedOrder();
-                    enrichedOrder.id = order.id;
-                    enrichedOrder.items = order.items;
-                    enrichedOrder.userId = order.userId;
-                    enrichedOrder.status = orderStatus.status;
-                    enrichedOrder.createdAt = orderStatus.updatedAt;
-                    enrichedOrder.price = order.price;
-                    return enrichedOrder;
-                },
-                JoinWindows.ofTimeDifferenceAndGrace(Duration.ofHours(2), Duration.ofHours(4))
-                ).to(enrichedOrdersTopic, Produced.with(Serdes.String(), enrichedOrdersSerde));
+        // Orders are stored once and every status change is enriched from the store as it arrives
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(OrderStatusTracker.STORE), Serdes.String(), trackedOrderSerde));
+        // Current status of every order, queried by the /orders/statuses and /orders/stuck endpoints
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(OrderStatusTracker.STATUS_INDEX_STORE), Serdes.String(),
+                orderStatusEntrySerde));
+        // Orders in each status per second they entered it, the /orders/statuses histogram. Caching folds the updates
+        // of a second into one changelog record per commit.
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(OrderStatusTracker.STATUS_COUNTS_STORE), Serdes.String(), Serdes.Long())
+                .withCachingEnabled());
+        // Order ids by expiry, so purging expired orders doesn't scan the whole tracker store
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(OrderStatusTracker.EXPIRY_INDEX_STORE), Serdes.String(),
+                Serdes.String()));
+        // Histograms of the time spent in each status, a fixed size binary encoding whatever INTERNAL_SERDE_FORMAT is.
+        // Caching folds the updates of a window into one changelog record per commit.
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(OrderStatusTracker.LATENCIES_STORE, OrderStatusTracker.LATENCIES_RETENTION,
+                        OrderStatusTracker.LATENCIES_WINDOW, false),
+                Serdes.String(), BinarySerdes.LatencyHistogram()).withCachingEnabled());
+        OrderStatusTracker statusTracker = new OrderStatusTracker(deliveredOrderTtl, openOrderTtl,
+                new StageMetrics(registry, "tracked-orders"), new StageMetrics(registry, "enriched-orders"));
+        String[] statusTrackerStores = {
+                OrderStatusTracker.STORE, OrderStatusTracker.STATUS_INDEX_STORE, OrderStatusTracker.STATUS_COUNTS_STORE,
+                OrderStatusTracker.EXPIRY_INDEX_STORE, OrderStatusTracker.LATENCIES_STORE};
+        orders.process(statusTracker.orders(), statusTrackerStores)
+                .merge(orderStatuses.process(statusTracker.statuses(), statusTrackerStores))
+                .to(enrichedOrdersTopic, Produced.with(Serdes.String(), enrichedOrdersSerde));
+
+        /*
+        {
+          "id": "ed3fe5bc-2e2e-49c3-a2f3-367b4dd80000",
+          "updatedAt": "2022-10-17T13:31:12.739917",
+          "deliveryLat": "12.9791583",
+          "deliveryLon": "77.6044567",
+          "status": "IN_TRANSIT"
+        }
+         */
+        // Positions of the orders in transit, replicated into every instance for the /orders/delayed endpoint
+        builder.addGlobalStore(
+                Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(DELIVERY_POSITIONS_STORE), Serdes.String(),
+                        deliveryStatusSerde).withLoggingDisabled(),
+                deliveryStatusesTopic,
+                Consumed.with(Serdes.String(), deliveryStatusSerde),
+                () -> new DeliveryIndexUpdater(DELIVERY_POSITIONS_STORE, deliveryIndex, deliveryPositionsStage));
 
         final Properties props = new Properties();
 
@@ -0,0 +1,84 @@
+package pizzashop.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.streams.processor.TimestampExtractor;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.models.Order;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/*
+Event time of orders and order statuses, for EVENT_TIMESTAMPS=epoch.
+
+Order.createdAt and OrderStatus.updatedAt are parsed once, by the deserializer of their source topic (see
+parsing), into createdAtMicros and updatedAtMicros, and the strings are dropped so that neither later processors nor
+repartition and changelog records carry them. The extractor only reads the parsed time, which becomes the timestamp
+of the record, so windows, buckets and stream time follow order time rather than the time the record was produced.
+Parsing in the deserializer doesn't rely on Kafka Streams handing the extractor the same value instance it passes
+downstream. Records whose time can't be parsed keep their string and the Kafka record timestamp.
+
+With EVENT_TIMESTAMPS=string the strings are kept as they are and micros(...) parses them where they are needed.
+ */
+public class EventTime implements TimestampExtractor {
+    // epoch micros of a timestamp that is missing or can't be parsed
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    /* Wraps the deserializer of a source topic, so that createdAt and updatedAt are parsed as the record is read */
+    public static <T> Deserializer<T> parsing(Deserializer<T> deserializer) {
+        return (topic, data) -> {
+            T value = deserializer.deserialize(topic, data);
+            parse(value);
+            return value;
+        };
+    }
+
+    @Override
+    public long extract(ConsumerRecord<Object, Object> record, long partitionTime) {
+        long micros = 0;
+        if (record.value() instanceof Order order) {
+            micros = order.createdAtMicros;
+        } else if (record.value() instanceof OrderStatus orderStatus) {
+            micros = orderStatus.updatedAtMicros;
+        }
+        return micros != 0 ? TimeUnit.MICROSECONDS.toMillis(micros) : record.timestamp();
+    }
+
+    static void parse(Object value) {
+        if (value instanceof Order order && order.createdAtMicros == 0) {
+            long micros = parseMicros(order.createdAt);
+            if (micros != UNKNOWN) {
+                order.createdAtMicros = micros;
+                order.createdAt = null;
+            }
+        } else if (value instanceof OrderStatus orderStatus && orderStatus.updatedAtMicros == 0) {
+            long micros = parseMicros(orderStatus.updatedAt);
+            if (micros != UNKNOWN) {
+                orderStatus.updatedAtMicros = micros;
+                orderStatus.updatedAt = null;
+            }
+        }
+    }
+
+    /* The pre-parsed epoch micros when set, otherwise the string parsed */
+    public static long micros(long micros, String localDateTime) {
+        return micros != 0 ? micros : parseMicros(localDateTime);
+    }
+
+    /* Epoch micros of a local date time in UTC, as the services write them and Pinot reads them */
+    public static long parseMicros(String localDateTime) {
+        if (localDateTime == null) {
+            return UNKNOWN;
+        }
+        try {
+            Instant instant = LocalDateTime.parse(localDateTime).toInstant(ZoneOffset.UTC);
+            return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1_000;
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package pizzashop.kafka;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+The stores of EnrichedOrdersTopology are only read locally, so a read is complete only while this instance hosts every
+partition of the store. Queries ask for the local partitions first: once another instance joins the group and owns
+some of them, an InvalidStateStoreException is thrown and the endpoints answer from Pinot instead of from part of the
+orders.
+ */
+@ApplicationScoped
+public class LocalStores {
+
+    @Inject
+    KafkaStreams streams;
+
+    @ConfigProperty(name = "quarkus.kafka-streams.application-server")
+    String applicationServer;
+
+    /* The partitions of store name, all hosted by this instance */
+    public Set<Integer> partitions(String name) {
+        HostInfo self = HostInfo.buildFromEndpoint(applicationServer);
+        Set<Integer> partitions = new TreeSet<>();
+        for (StreamsMetadata metadata : streams.streamsMetadataForStore(name)) {
+            if (metadata.hostInfo().equals(self)) {
+                metadata.topicPartitions().forEach(partition -> partitions.add(partition.partition()));
+            } else if (!metadata.topicPartitions().isEmpty()) {
+                throw new InvalidStateStoreException("Store " + name + " is partly hosted by " + metadata.hostInfo());
+            }
+        }
+        if (partitions.isEmpty()) {
+            throw new InvalidStateStoreException("Store " + name + " has no local partitions yet");
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,57 @@
+package pizzashop.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+Records handled by one stage of the topology, those it dropped, and their end-to-end lag: the wall clock when the
+stage handled a record minus the time the order or status was created at its source (Order.createdAt,
+OrderStatus.updatedAt). The lag adds up the time spent in the services producing the events, in Kafka and in every
+earlier stage, so comparing it across stages shows which one falls behind.
+
+Exported as pizzashop.stage.records, pizzashop.stage.dropped and pizzashop.stage.lag tagged with the stage, next to
+the Kafka Streams metrics of the application. Meters are shared by the tasks running the stage.
+ */
+public class StageMetrics {
+    private final Counter records;
+    private final Counter dropped;
+    private final Timer lag;
+
+    public StageMetrics(MeterRegistry registry, String stage) {
+        records = Counter.builder("pizzashop.stage.records")
+                .description("Records handled by the stage")
+                .tag("stage", stage)
+                .register(registry);
+        dropped = Counter.builder("pizzashop.stage.dropped")
+                .description("Records dropped by the stage")
+                .tag("stage", stage)
+                .register(registry);
+        lag = Timer.builder("pizzashop.stage.lag")
+                .description("Wall clock when the stage handled a record minus the event time of the record")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+    }
+
+    /* A record handled by the stage, with its event time in epoch micros or EventTime.UNKNOWN */
+    public void record(long eventMicros) {
+        records.increment();
+        if (eventMicros == EventTime.UNKNOWN) {
+            return;
+        }
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        // clocks of the producing services can run ahead, that is no lag rather than a negative one
+        lag.record(Math.max(0, nowMicros - eventMicros), TimeUnit.MICROSECONDS);
+    }
+
+    public void drop() {
+        dropped.increment();
+    }
+}
@@ -0,0 +1,23 @@
+package pizzashop.kafka;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+public class StoreExceptionMappers {
+
+    @ConfigProperty(name = "pizzashop.stores.retry-after-seconds", defaultValue = "1")
+    int retryAfterSeconds;
+
+    // Endpoints without a Pinot fallback can't be answered while the stores load, rebalance or are split across
+    // instances, the caller should retry
+    @ServerExceptionMapper
+    public Response storeNotReady(InvalidStateStoreException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(e.getMessage())
+                .build();
+    }
+}
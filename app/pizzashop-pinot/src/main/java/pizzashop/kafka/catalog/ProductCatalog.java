@@ -0,0 +1,71 @@
+package pizzashop.kafka.catalog;
+
+import pizzashop.models.Product;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Replicated, in-memory view of the products table used to enrich order items in the same task as the order.
+ *
+ * Product ids are small, dense auto-increment numbers, so products are kept in an array indexed by id instead of a
+ * hashed map of String keys. Ids that aren't numeric (or are too large to index) fall back to a regular map.
+ *
+ * The catalog is written by a single global stream thread and read concurrently by the stream threads; every write
+ * republishes the array through a volatile field so readers always see fully populated entries.
+ */
+public class ProductCatalog {
+    private static final int MAX_INDEXED_ID = 1 << 20;
+
+    private volatile Product[] byId = new Product[256];
+    private final Map<String, Product> byKey = new ConcurrentHashMap<>();
+
+    public Product get(String productId) {
+        int id = numericId(productId);
+        if (id < 0) {
+            // an order item without a product id is dropped like one of an unknown product
+            return productId == null ? null : byKey.get(productId);
+        }
+        Product[] products = byId;
+        return id < products.length ? products[id] : null;
+    }
+
+    /* A null product removes the entry, matching the tombstone semantics of the products changelog */
+    public void put(String productId, Product product) {
+        int id = numericId(productId);
+        if (id < 0) {
+            if (product == null) {
+                byKey.remove(productId);
+            } else {
+                byKey.put(productId, product);
+            }
+            return;
+        }
+
+        Product[] products = byId;
+        if (id >= products.length) {
+            if (product == null) {
+                return;
+            }
+            products = Arrays.copyOf(products, Math.max(products.length * 2, Integer.highestOneBit(id) << 1));
+        }
+        products[id] = product;
+        byId = products;
+    }
+
+    private static int numericId(String productId) {
+        if (productId == null || productId.isEmpty() || productId.length() > 7) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = 0; i < productId.length(); i++) {
+            char c = productId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id < MAX_INDEXED_ID ? id : -1;
+    }
+}
@@ -0,0 +1,50 @@
+package pizzashop.kafka.catalog;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import pizzashop.models.Product;
+
+/*
+ * State update processor of the global products store.
+ *
+ * Global stores are restored by copying the topic straight into the store, bypassing this processor, so the catalog
+ * is (re)loaded from the store on init and then kept up to date with every new record.
+ */
+public class ProductCatalogUpdater implements Processor<String, Product, Void, Void> {
+    private final String storeName;
+    private final ProductCatalog catalog;
+    private KeyValueStore<String, Product> store;
+
+    public ProductCatalogUpdater(String storeName, ProductCatalog catalog) {
+        this.storeName = storeName;
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        store = context.getStateStore(storeName);
+        try (KeyValueIterator<String, Product> all = store.all()) {
+            while (all.hasNext()) {
+                KeyValue<String, Product> entry = all.next();
+                catalog.put(entry.key, entry.value);
+            }
+        }
+    }
+
+    @Override
+    public void process(Record<String, Product> record) {
+        if (record.key() == null) {
+            return;
+        }
+        if (record.value() == null) {
+            store.delete(record.key());
+        } else {
+            store.put(record.key(), record.value());
+        }
+        catalog.put(record.key(), record.value());
+    }
+}
@@ -0,0 +1,100 @@
+package pizzashop.kafka.geo;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import pizzashop.kafka.model.DeliveryStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+In-memory index of the orders in transit by geohash cell, replicated from the delivery statuses topic by
+DeliveryIndexUpdater.
+
+A polygon lookup walks the cells of its bounding box and only tests the positions found in them, so it costs time
+proportional to the area asked for rather than to the size of the fleet. Bounding boxes covering more than MAX_CELLS
+cells are answered by testing every position instead, which is cheaper at that point.
+
+Updates come from the single global stream thread while requests read concurrently.
+ */
+@ApplicationScoped
+public class DeliveryIndex {
+    static final String IN_TRANSIT = "IN_TRANSIT";
+    static final long MAX_CELLS = 1 << 16;
+
+    private final Map<String, DeliveryPosition> byOrder = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, DeliveryPosition>> byCell = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public void update(String orderId, DeliveryStatus deliveryStatus) {
+        if (deliveryStatus == null || !IN_TRANSIT.equals(deliveryStatus.status)) {
+            remove(orderId);
+            return;
+        }
+
+        DeliveryPosition position = new DeliveryPosition(orderId, deliveryStatus.updatedAt,
+                deliveryStatus.deliveryLat, deliveryStatus.deliveryLon);
+        DeliveryPosition previous = byOrder.put(orderId, position);
+        if (previous != null && previous.cell != position.cell) {
+            removeFromCell(previous);
+        }
+        byCell.computeIfAbsent(position.cell, cell -> new ConcurrentHashMap<>()).put(orderId, position);
+    }
+
+    public void remove(String orderId) {
+        DeliveryPosition previous = byOrder.remove(orderId);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+    }
+
+    /* The orders in transit within the polygon, oldest update first */
+    public List<DeliveryPosition> within(Polygon polygon) {
+        int minX = GeoCells.x(polygon.minLon()), maxX = GeoCells.x(polygon.maxLon());
+        int minY = GeoCells.y(polygon.minLat()), maxY = GeoCells.y(polygon.maxLat());
+
+        List<DeliveryPosition> positions = new ArrayList<>();
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS) {
+            collect(byOrder, polygon, positions);
+        } else {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    Map<String, DeliveryPosition> cell = byCell.get(GeoCells.cell(x, y));
+                    if (cell != null) {
+                        collect(cell, polygon, positions);
+                    }
+                }
+            }
+        }
+        positions.sort(Comparator.comparing(position -> position.updatedAt,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        return positions;
+    }
+
+    /* Only complete once the global store has been restored */
+    public boolean isReady() {
+        return ready;
+    }
+
+    void ready() {
+        this.ready = true;
+    }
+
+    private static void collect(Map<String, DeliveryPosition> candidates, Polygon polygon,
+                                List<DeliveryPosition> positions) {
+        for (DeliveryPosition position : candidates.values()) {
+            if (polygon.contains(position.lat, position.lon)) {
+                positions.add(position);
+            }
+        }
+    }
+
+    private void removeFromCell(DeliveryPosition position) {
+        byCell.computeIfPresent(position.cell, (cell, positions) -> {
+            positions.remove(position.id, position);
+            return positions.isEmpty() ? null : positions;
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package pizzashop.kafka.geo;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.StageMetrics;
+import pizzashop.kafka.model.DeliveryStatus;
+
+/*
+State update processor of the global delivery positions store. Like the product catalog, the index is rebuilt from the
+restored store on init, then kept up to date with every new status. Delivered orders leave both.
+ */
+public class DeliveryIndexUpdater implements Processor<String, DeliveryStatus, Void, Void> {
+    private final String storeName;
+    private final DeliveryIndex index;
+    private final StageMetrics stage;
+    private KeyValueStore<String, DeliveryStatus> store;
+
+    public DeliveryIndexUpdater(String storeName, DeliveryIndex index, StageMetrics stage) {
+        this.storeName = storeName;
+        this.index = index;
+        this.stage = stage;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        store = context.getStateStore(storeName);
+        try (KeyValueIterator<String, DeliveryStatus> all = store.all()) {
+            while (all.hasNext()) {
+                KeyValue<String, DeliveryStatus> entry = all.next();
+                index.update(entry.key, entry.value);
+            }
+        }
+        index.ready();
+    }
+
+    @Override
+    public void process(Record<String, DeliveryStatus> record) {
+        if (record.key() == null) {
+            return;
+        }
+        DeliveryStatus deliveryStatus = record.value();
+        if (deliveryStatus == null || !DeliveryIndex.IN_TRANSIT.equals(deliveryStatus.status)) {
+            store.delete(record.key());
+        } else {
+            store.put(record.key(), deliveryStatus);
+        }
+        index.update(record.key(), deliveryStatus);
+        stage.record(deliveryStatus == null ? EventTime.UNKNOWN : EventTime.parseMicros(deliveryStatus.updatedAt));
+    }
+}
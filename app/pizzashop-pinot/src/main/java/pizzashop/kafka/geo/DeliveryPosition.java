@@ -0,0 +1,18 @@
+package pizzashop.kafka.geo;
+
+/* Last known position of an order in transit */
+public class DeliveryPosition {
+    public final String id;
+    public final String updatedAt;
+    public final double lat;
+    public final double lon;
+    final long cell;
+
+    DeliveryPosition(String id, String updatedAt, double lat, double lon) {
+        this.id = id;
+        this.updatedAt = updatedAt;
+        this.lat = lat;
+        this.lon = lon;
+        this.cell = GeoCells.cell(lat, lon);
+    }
+}
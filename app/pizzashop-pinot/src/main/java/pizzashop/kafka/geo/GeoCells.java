@@ -0,0 +1,44 @@
+package pizzashop.kafka.geo;
+
+/*
+Integer geohash cells. A cell id interleaves the longitude and latitude bits exactly like a geohash string does, at
+15 bits each (geohash precision 6): cells are about 1.2km by 0.6km at the equator.
+ */
+final class GeoCells {
+    static final int BITS = 15;
+    static final int DIVISIONS = 1 << BITS;
+
+    private GeoCells() {
+    }
+
+    static int x(double lon) {
+        return clamp((int) Math.floor((lon + 180) / 360 * DIVISIONS));
+    }
+
+    static int y(double lat) {
+        return clamp((int) Math.floor((lat + 90) / 180 * DIVISIONS));
+    }
+
+    static long cell(double lat, double lon) {
+        return cell(x(lon), y(lat));
+    }
+
+    /* Longitude bits go first, as in a geohash */
+    static long cell(int x, int y) {
+        return (spread(x) << 1) | spread(y);
+    }
+
+    private static long spread(int value) {
+        long bits = value & 0xFFFFFFFFL;
+        bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+        bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+        bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | (bits << 2)) & 0x3333333333333333L;
+        bits = (bits | (bits << 1)) & 0x5555555555555555L;
+        return bits;
+    }
+
+    private static int clamp(int value) {
+        return Math.min(Math.max(value, 0), DIVISIONS - 1);
+    }
+}
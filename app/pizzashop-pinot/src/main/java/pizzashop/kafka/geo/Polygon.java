@@ -0,0 +1,110 @@
+package pizzashop.kafka.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+A WKT POLYGON, with x as longitude and y as latitude like ST_GeomFromText reads it. Points are tested with the even-odd
+rule over every ring, so holes are excluded. Other geometry types are rejected with an IllegalArgumentException.
+ */
+public class Polygon {
+    private final List<double[]> rings;
+    private final double minLat;
+    private final double maxLat;
+    private final double minLon;
+    private final double maxLon;
+
+    private Polygon(List<double[]> rings) {
+        this.rings = rings;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (double[] ring : rings) {
+            for (int index = 0; index < ring.length; index += 2) {
+                minLon = Math.min(minLon, ring[index]);
+                maxLon = Math.max(maxLon, ring[index]);
+                minLat = Math.min(minLat, ring[index + 1]);
+                maxLat = Math.max(maxLat, ring[index + 1]);
+            }
+        }
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+    }
+
+    public static Polygon parseWkt(String wkt) {
+        String text = wkt.trim();
+        if (!text.toUpperCase(Locale.ROOT).startsWith("POLYGON")) {
+            throw new IllegalArgumentException("Only POLYGON is supported: " + wkt);
+        }
+        int open = text.indexOf('(');
+        int close = text.lastIndexOf(')');
+        if (open < 0 || close < open) {
+            throw new IllegalArgumentException("Malformed polygon: " + wkt);
+        }
+
+        List<double[]> rings = new ArrayList<>();
+        String body = text.substring(open + 1, close);
+        int start = body.indexOf('(');
+        while (start >= 0) {
+            int end = body.indexOf(')', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Malformed polygon: " + wkt);
+            }
+            String[] points = body.substring(start + 1, end).split(",");
+            if (points.length < 3) {
+                throw new IllegalArgumentException("A ring needs at least three points: " + wkt);
+            }
+            double[] ring = new double[points.length * 2];
+            for (int index = 0; index < points.length; index++) {
+                String[] coordinates = points[index].trim().split("\\s+");
+                if (coordinates.length < 2) {
+                    throw new IllegalArgumentException("Malformed point '" + points[index] + "' in " + wkt);
+                }
+                ring[index * 2] = Double.parseDouble(coordinates[0]);
+                ring[index * 2 + 1] = Double.parseDouble(coordinates[1]);
+            }
+            rings.add(ring);
+            start = body.indexOf('(', end);
+        }
+        if (rings.isEmpty()) {
+            throw new IllegalArgumentException("Polygon without rings: " + wkt);
+        }
+        return new Polygon(rings);
+    }
+
+    public boolean contains(double lat, double lon) {
+        if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) {
+            return false;
+        }
+        boolean inside = false;
+        for (double[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0, j = points - 1; i < points; j = i++) {
+                double xi = ring[i * 2], yi = ring[i * 2 + 1];
+                double xj = ring[j * 2], yj = ring[j * 2 + 1];
+                if ((yi > lat) != (yj > lat) && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    double minLat() {
+        return minLat;
+    }
+
+    double maxLat() {
+        return maxLat;
+    }
+
+    double minLon() {
+        return minLon;
+    }
+
+    double maxLon() {
+        return maxLon;
+    }
+}
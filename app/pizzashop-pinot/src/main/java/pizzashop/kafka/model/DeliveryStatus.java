@@ -0,0 +1,15 @@
+package pizzashop.kafka.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DeliveryStatus {
+    public DeliveryStatus() {
+    }
+
+    public String id;
+    public String updatedAt;
+    public double deliveryLat;
+    public double deliveryLon;
+    public String status;
+}
@@ -1,9 +1,14 @@
 package pizzashop.kafka.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import pizzashop.models.OrderItem;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+@JsonIgnoreProperties(value = "ts", allowGetters = true)
 public class EnrichedOrder {
     public EnrichedOrder() {
 
@@ -13,9 +18,24 @@ public class EnrichedOrder {
     public String userId;
     public String status;
     public String createdAt;
+    // also written as ts, see ts(). Records are read back from it, ts only has millis.
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long createdAtMicros;
 
     public double price;
 
+    // only set on the first status of an order, orders_enriched keeps it through partial upserts
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public List<OrderItem> items;
 
+    /*
+    createdAtMicros in epoch millis, the format of the ts column of orders_enriched. Pinot only applies the
+    FromDateTime transform of createdAt when ts is missing, so pre-parsed orders are ingested without parsing. Only
+    written, it is ignored when the record is read back.
+     */
+    @JsonProperty("ts")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long ts() {
+        return createdAtMicros == 0 ? null : TimeUnit.MICROSECONDS.toMillis(createdAtMicros);
+    }
 }
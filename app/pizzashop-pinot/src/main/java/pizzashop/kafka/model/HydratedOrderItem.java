@@ -1,23 +1,44 @@
 package pizzashop.kafka.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import pizzashop.models.OrderItem;
 import pizzashop.models.Product;
 
+import java.util.concurrent.TimeUnit;
+
+@JsonIgnoreProperties(value = "ts", allowGetters = true)
 public class HydratedOrderItem  {
 
     public HydratedOrderItem() {
     }
 
-    public HydratedOrderItem(String orderId, String createdAt, Product product, OrderItem orderItem) {
+    public HydratedOrderItem(String orderId, String createdAt, long createdAtMicros, Product product,
+                             OrderItem orderItem) {
         this.orderId = orderId;
         this.createdAt = createdAt;
+        this.createdAtMicros = createdAtMicros;
         this.product = product;
         this.orderItem = orderItem;
     }
 
     public String orderId;
     public String createdAt;
+    // also written as ts, see ts(). Records are read back from it, ts only has millis.
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long createdAtMicros;
     public Product product;
     public OrderItem orderItem;
 
+    /*
+    createdAtMicros in epoch millis, the format of the ts column of orders_items_enriched. Pinot only applies the
+    FromDateTime transform of createdAt when ts is missing, so pre-parsed items are ingested without parsing. Only
+    written, it is ignored when the record is read back.
+     */
+    @JsonProperty("ts")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long ts() {
+        return createdAtMicros == 0 ? null : TimeUnit.MICROSECONDS.toMillis(createdAtMicros);
+    }
 }
@@ -7,13 +7,15 @@ public class OrderItemWithContext {
     public OrderItemWithContext() {
     }
 
-    public OrderItemWithContext(String orderId, String createdAt, OrderItem orderItem) {
+    public OrderItemWithContext(String orderId, String createdAt, long createdAtMicros, OrderItem orderItem) {
         this.orderId = orderId;
         this.createdAt = createdAt;
+        this.createdAtMicros = createdAtMicros;
         this.orderItem = orderItem;
     }
 
     public String orderId;
     public String createdAt;
+    public long createdAtMicros;
     public OrderItem orderItem;
 }
@@ -4,4 +4,6 @@ public class OrderStatus {
     public String id;
     public String status;
     public String updatedAt;
+    // updatedAt in epoch micros, set instead of it with EVENT_TIMESTAMPS=epoch, see EventTime
+    public long updatedAtMicros;
 }
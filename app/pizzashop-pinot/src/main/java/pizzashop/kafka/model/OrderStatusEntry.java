@@ -0,0 +1,19 @@
+package pizzashop.kafka.model;
+
+/*
+Entry of the orders by status index: an order currently in a status and when it entered it, in epoch micros.
+ */
+public class OrderStatusEntry {
+    public OrderStatusEntry() {
+    }
+
+    public OrderStatusEntry(String id, double price, long enteredAt) {
+        this.id = id;
+        this.price = price;
+        this.enteredAt = enteredAt;
+    }
+
+    public String id;
+    public double price;
+    public long enteredAt;
+}
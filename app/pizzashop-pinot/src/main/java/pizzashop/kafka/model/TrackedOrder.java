@@ -0,0 +1,30 @@
+package pizzashop.kafka.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import pizzashop.models.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+State kept per order by the status tracker: the order itself, stored once, and its latest status.
+Statuses that arrive before their order are parked in pendingStatuses until it shows up.
+Unknown properties are ignored so that JSON entries stored with the former updatedAt string can still be read.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TrackedOrder {
+    public TrackedOrder() {
+    }
+
+    public Order order;
+    public String status;
+    // updatedAt of the latest status, in epoch micros
+    public long updatedAtMicros;
+    // when the order entered its current status, in epoch micros
+    public long enteredAt;
+    // whether the items were already sent downstream, later status changes are published without them
+    public boolean itemsPublished;
+    // stream time (epoch millis) after which the entry is purged
+    public long expiresAt;
+    public List<OrderStatus> pendingStatuses = new ArrayList<>();
+}
@@ -0,0 +1,54 @@
+package pizzashop.kafka.popular;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.WindowStore;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.StageMetrics;
+import pizzashop.kafka.model.HydratedOrderItem;
+
+import java.time.Duration;
+
+/*
+Adds every enriched order item to the popularity sketch of its bucket.
+
+Every item goes through the store, so the sketch update is part of the task's state when the offsets of its record are
+committed. The store is cached: the sketch of the current bucket is fetched from and put back into the record cache,
+and reaches RocksDB and the changelog once per commit rather than once per item.
+ */
+public class PopularityProcessor implements Processor<String, HydratedOrderItem, Void, Void> {
+    public static final String STORE = "popular-products";
+    public static final Duration BUCKET = Duration.ofSeconds(10);
+    public static final Duration RETENTION = Duration.ofMinutes(10);
+
+    private final StageMetrics stage;
+    private WindowStore<String, PopularitySketch> store;
+    private String key;
+
+    public PopularityProcessor(StageMetrics stage) {
+        this.stage = stage;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.store = context.getStateStore(STORE);
+        // one sketch per task and bucket, the tasks are merged when queried
+        this.key = context.taskId().toString();
+    }
+
+    @Override
+    public void process(Record<String, HydratedOrderItem> record) {
+        if (record.value() == null) {
+            return;
+        }
+        long bucketStart = record.timestamp() - Math.floorMod(record.timestamp(), BUCKET.toMillis());
+        PopularitySketch sketch = store.fetch(key, bucketStart);
+        if (sketch == null) {
+            sketch = new PopularitySketch();
+        }
+        sketch.add(record.value());
+        store.put(key, sketch, bucketStart);
+        stage.record(EventTime.micros(record.value().createdAtMicros, record.value().createdAt));
+    }
+}
@@ -0,0 +1,50 @@
+package pizzashop.kafka.popular;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import pizzashop.kafka.LocalStores;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+Reads the popularity sketches of the local tasks over the last period and merges them. The window store keeps one
+sketch per task and 10 second bucket, so a one minute read merges a few dozen small sketches whatever the order rate.
+
+Only the partitions assigned to this instance are visible, so the read fails with an InvalidStateStoreException unless
+LocalStores finds all of them here, and /popular answers from Pinot rather than from part of the orders.
+ */
+@ApplicationScoped
+public class PopularityQueries {
+
+    @Inject
+    KafkaStreams streams;
+
+    @Inject
+    LocalStores localStores;
+
+    /* Merges the buckets that started within the period, which covers the period minus at most one bucket */
+    public Uni<PopularitySketch> popularity(Instant now, Duration period) {
+        return Uni.createFrom().item(() -> {
+                    localStores.partitions(PopularityProcessor.STORE);
+                    ReadOnlyWindowStore<String, PopularitySketch> store = streams.store(
+                            StoreQueryParameters.fromNameAndType(PopularityProcessor.STORE,
+                                    QueryableStoreTypes.windowStore()));
+                    PopularitySketch merged = new PopularitySketch();
+                    try (KeyValueIterator<Windowed<String>, PopularitySketch> buckets =
+                                 store.fetchAll(now.minus(period), now)) {
+                        buckets.forEachRemaining(bucket -> merged.merge(bucket.value));
+                    }
+                    return merged;
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+}
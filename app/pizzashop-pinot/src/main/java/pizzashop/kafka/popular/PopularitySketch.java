@@ -0,0 +1,59 @@
+package pizzashop.kafka.popular;
+
+import pizzashop.kafka.model.HydratedOrderItem;
+import pizzashop.kafka.sketch.HyperLogLog;
+import pizzashop.kafka.sketch.SpaceSaving;
+
+/*
+What was ordered during a time bucket: heavy hitter summaries of the products (labelled with their image) and of the
+categories, and a distinct count of the orders. Buckets of every task and of consecutive windows are merged to answer
+the popular endpoint.
+ */
+public class PopularitySketch {
+    static final int PRODUCTS_CAPACITY = 64;
+    static final int CATEGORIES_CAPACITY = 32;
+
+    private final SpaceSaving products;
+    private final SpaceSaving categories;
+    private final HyperLogLog orders;
+
+    public PopularitySketch() {
+        this(new SpaceSaving(PRODUCTS_CAPACITY), new SpaceSaving(CATEGORIES_CAPACITY), new HyperLogLog());
+    }
+
+    public PopularitySketch(SpaceSaving products, SpaceSaving categories, HyperLogLog orders) {
+        this.products = products;
+        this.categories = categories;
+        this.orders = orders;
+    }
+
+    public void add(HydratedOrderItem item) {
+        if (item.product == null || item.orderItem == null) {
+            return;
+        }
+        products.add(item.product.name, item.product.image, item.orderItem.quantity);
+        categories.add(item.product.category, null, item.orderItem.quantity);
+        if (item.orderId != null) {
+            orders.add(item.orderId);
+        }
+    }
+
+    public PopularitySketch merge(PopularitySketch other) {
+        products.merge(other.products);
+        categories.merge(other.categories);
+        orders.merge(other.orders);
+        return this;
+    }
+
+    public SpaceSaving products() {
+        return products;
+    }
+
+    public SpaceSaving categories() {
+        return categories;
+    }
+
+    public HyperLogLog orders() {
+        return orders;
+    }
+}
@@ -0,0 +1,7 @@
+package pizzashop.kafka.serde;
+
+public interface BinaryCodec<T> {
+    void write(BinaryWriter out, T value);
+
+    T read(BinaryReader in);
+}
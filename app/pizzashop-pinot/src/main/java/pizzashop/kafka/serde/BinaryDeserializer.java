@@ -0,0 +1,31 @@
+package pizzashop.kafka.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+public class BinaryDeserializer<T> implements Deserializer<T> {
+    private final BinaryCodec<T> codec;
+
+    public BinaryDeserializer(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public T deserialize(final String topic, final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        BinaryReader reader = new BinaryReader(data);
+        int version = reader.readByte();
+        if (version != BinarySerializer.FORMAT_VERSION) {
+            throw new SerializationException("Unsupported binary format version " + version + " on " + topic);
+        }
+
+        try {
+            return codec.read(reader);
+        } catch (final RuntimeException e) {
+            throw new SerializationException("Error deserializing binary message", e);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package pizzashop.kafka.serde;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import pizzashop.kafka.model.HydratedOrderItem;
+import pizzashop.kafka.model.OrderItemWithContext;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.popular.PopularitySketch;
+import pizzashop.kafka.sketch.HyperLogLog;
+import pizzashop.kafka.sketch.LatencyHistogram;
+import pizzashop.kafka.sketch.SpaceSaving;
+import pizzashop.models.Order;
+import pizzashop.models.OrderItem;
+import pizzashop.models.Product;
+
+/*
+Compact binary serdes for the topology's internal repartition and changelog topics. Fields are written in declaration
+order without names: strings as length-prefixed UTF-8, lengths, sizes and small ints as varints, doubles and the
+other longs in fixed width. A record is decoded in one pass without parsing JSON. Public output topics keep using
+JSON. Any change to the layout of a codec bumps BinarySerializer.FORMAT_VERSION.
+
+Pre-parsed timestamps are written as var longs, so they cost a single byte when EVENT_TIMESTAMPS=string leaves them
+unset, and the string they replace a single byte when EVENT_TIMESTAMPS=epoch drops it.
+ */
+public class BinarySerdes {
+
+    static final BinaryCodec<OrderItem> ORDER_ITEM = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, OrderItem value) {
+            out.writeString(value.productId);
+            out.writeVarInt(value.quantity);
+            out.writeDouble(value.price);
+        }
+
+        @Override
+        public OrderItem read(BinaryReader in) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.productId = in.readString();
+            orderItem.quantity = in.readVarInt();
+            orderItem.price = in.readDouble();
+            return orderItem;
+        }
+    };
+
+    static final BinaryCodec<Order> ORDER = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, Order value) {
+            out.writeString(value.id);
+            out.writeString(value.userId);
+            out.writeString(value.createdAt);
+            out.writeVarLong(value.createdAtMicros);
+            out.writeDouble(value.price);
+            out.writeDouble(value.deliveryLat);
+            out.writeDouble(value.deliveryLon);
+            out.writeList(value.items, ORDER_ITEM::write);
+        }
+
+        @Override
+        public Order read(BinaryReader in) {
+            Order order = new Order();
+            order.id = in.readString();
+            order.userId = in.readString();
+            order.createdAt = in.readString();
+            order.createdAtMicros = in.readVarLong();
+            order.price = in.readDouble();
+            order.deliveryLat = in.readDouble();
+            order.deliveryLon = in.readDouble();
+            order.items = in.readList(ORDER_ITEM::read);
+            return order;
+        }
+    };
+
+    static final BinaryCodec<Product> PRODUCT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, Product value) {
+            out.writeString(value.id);
+            out.writeString(value.name);
+            out.writeString(value.description);
+            out.writeString(value.category);
+            out.writeString(value.image);
+            out.writeDouble(value.price);
+        }
+
+        @Override
+        public Product read(BinaryReader in) {
+            Product product = new Product();
+            product.id = in.readString();
+            product.name = in.readString();
+            product.description = in.readString();
+            product.category = in.readString();
+            product.image = in.readString();
+            product.price = in.readDouble();
+            return product;
+        }
+    };
+
+    static final BinaryCodec<OrderItemWithContext> ORDER_ITEM_WITH_CONTEXT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, OrderItemWithContext value) {
+            out.writeString(value.orderId);
+            out.writeString(value.createdAt);
+            out.writeVarLong(value.createdAtMicros);
+            writeNullable(out, value.orderItem, ORDER_ITEM);
+        }
+
+        @Override
+        public OrderItemWithContext read(BinaryReader in) {
+            return new OrderItemWithContext(in.readString(), in.readString(), in.readVarLong(),
+                    readNullable(in, ORDER_ITEM));
+        }
+    };
+
+    static final BinaryCodec<HydratedOrderItem> HYDRATED_ORDER_ITEM = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, HydratedOrderItem value) {
+            out.writeString(value.orderId);
+            out.writeString(value.createdAt);
+            out.writeVarLong(value.createdAtMicros);
+            writeNullable(out, value.product, PRODUCT);
+            writeNullable(out, value.orderItem, ORDER_ITEM);
+        }
+
+        @Override
+        public HydratedOrderItem read(BinaryReader in) {
+            return new HydratedOrderItem(in.readString(), in.readString(), in.readVarLong(),
+                    readNullable(in, PRODUCT), readNullable(in, ORDER_ITEM));
+        }
+    };
+
+    static final BinaryCodec<OrderStatus> ORDER_STATUS = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, OrderStatus value) {
+            out.writeString(value.id);
+            out.writeString(value.status);
+            out.writeString(value.updatedAt);
+            out.writeVarLong(value.updatedAtMicros);
+        }
+
+        @Override
+        public OrderStatus read(BinaryReader in) {
+            OrderStatus orderStatus = new OrderStatus();
+            orderStatus.id = in.readString();
+            orderStatus.status = in.readString();
+            orderStatus.updatedAt = in.readString();
+            orderStatus.updatedAtMicros = in.readVarLong();
+            return orderStatus;
+        }
+    };
+
+    static final BinaryCodec<TrackedOrder> TRACKED_ORDER = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, TrackedOrder value) {
+            writeNullable(out, value.order, ORDER);
+            out.writeString(value.status);
+            out.writeVarLong(value.updatedAtMicros);
+            out.writeLong(value.enteredAt);
+            out.writeBoolean(value.itemsPublished);
+            out.writeLong(value.expiresAt);
+            out.writeList(value.pendingStatuses, ORDER_STATUS::write);
+        }
+
+        @Override
+        public TrackedOrder read(BinaryReader in) {
+            TrackedOrder trackedOrder = new TrackedOrder();
+            trackedOrder.order = readNullable(in, ORDER);
+            trackedOrder.status = in.readString();
+            trackedOrder.updatedAtMicros = in.readVarLong();
+            trackedOrder.enteredAt = in.readLong();
+            trackedOrder.itemsPublished = in.readBoolean();
+            trackedOrder.expiresAt = in.readLong();
+            trackedOrder.pendingStatuses = in.readList(ORDER_STATUS::read);
+            return trackedOrder;
+        }
+    };
+
+    static final BinaryCodec<OrderStatusEntry> ORDER_STATUS_ENTRY = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, OrderStatusEntry value) {
+            out.writeString(value.id);
+            out.writeDouble(value.price);
+            out.writeLong(value.enteredAt);
+        }
+
+        @Override
+        public OrderStatusEntry read(BinaryReader in) {
+            return new OrderStatusEntry(in.readString(), in.readDouble(), in.readLong());
+        }
+    };
+
+    /* Histograms are mostly empty, only the buckets with a count are written, as the gap from the previous one */
+    static final BinaryCodec<LatencyHistogram> LATENCY_HISTOGRAM = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, LatencyHistogram value) {
+            out.writeLong(value.sum());
+            out.writeLong(value.min());
+            out.writeLong(value.max());
+            long[] counts = value.counts();
+            int previous = -1;
+            for (int index = 0; index < counts.length; index++) {
+                if (counts[index] != 0) {
+                    out.writeVarInt(index - previous);
+                    out.writeLong(counts[index]);
+                    previous = index;
+                }
+            }
+            out.writeVarInt(0);
+        }
+
+        @Override
+        public LatencyHistogram read(BinaryReader in) {
+            long sum = in.readLong();
+            long min = in.readLong();
+            long max = in.readLong();
+            long[] counts = new long[LatencyHistogram.BUCKETS];
+            int index = -1;
+            for (int gap = in.readVarInt(); gap != 0; gap = in.readVarInt()) {
+                index += gap;
+                counts[index] = in.readLong();
+            }
+            return LatencyHistogram.of(counts, sum, min, max);
+        }
+    };
+
+    static final BinaryCodec<SpaceSaving> SPACE_SAVING = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, SpaceSaving value) {
+            out.writeVarInt(value.capacity());
+            out.writeVarInt(value.counters().size());
+            for (SpaceSaving.Counter counter : value.counters()) {
+                out.writeString(counter.key());
+                out.writeString(counter.label());
+                out.writeLong(counter.count());
+                out.writeLong(counter.error());
+                out.writeLong(counter.quantity());
+            }
+        }
+
+        @Override
+        public SpaceSaving read(BinaryReader in) {
+            SpaceSaving spaceSaving = new SpaceSaving(in.readVarInt());
+            int size = in.readVarInt();
+            for (int index = 0; index < size; index++) {
+                spaceSaving.restore(in.readString(), in.readString(), in.readLong(), in.readLong(), in.readLong());
+            }
+            return spaceSaving;
+        }
+    };
+
+    static final BinaryCodec<HyperLogLog> HYPER_LOG_LOG = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, HyperLogLog value) {
+            out.writeVarInt(value.precision());
+            for (byte register : value.registers()) {
+                out.writeByte(register);
+            }
+        }
+
+        @Override
+        public HyperLogLog read(BinaryReader in) {
+            int precision = in.readVarInt();
+            byte[] registers = new byte[1 << precision];
+            for (int index = 0; index < registers.length; index++) {
+                registers[index] = (byte) in.readByte();
+            }
+            return HyperLogLog.of(precision, registers);
+        }
+    };
+
+    static final BinaryCodec<PopularitySketch> POPULARITY_SKETCH = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, PopularitySketch value) {
+            SPACE_SAVING.write(out, value.products());
+            SPACE_SAVING.write(out, value.categories());
+            HYPER_LOG_LOG.write(out, value.orders());
+        }
+
+        @Override
+        public PopularitySketch read(BinaryReader in) {
+            return new PopularitySketch(SPACE_SAVING.read(in), SPACE_SAVING.read(in), HYPER_LOG_LOG.read(in));
+        }
+    };
+
+    public static Serde<Order> Order() {
+        return serde(ORDER);
+    }
+
+    public static Serde<OrderItemWithContext> OrderItemWithContext() {
+        return serde(ORDER_ITEM_WITH_CONTEXT);
+    }
+
+    public static Serde<HydratedOrderItem> HydratedOrderItem() {
+        return serde(HYDRATED_ORDER_ITEM);
+    }
+
+    public static Serde<OrderStatus> OrderStatus() {
+        return serde(ORDER_STATUS);
+    }
+
+    public static Serde<TrackedOrder> TrackedOrder() {
+        return serde(TRACKED_ORDER);
+    }
+
+    public static Serde<OrderStatusEntry> OrderStatusEntry() {
+        return serde(ORDER_STATUS_ENTRY);
+    }
+
+    public static Serde<LatencyHistogram> LatencyHistogram() {
+        return serde(LATENCY_HISTOGRAM);
+    }
+
+    public static Serde<PopularitySketch> PopularitySketch() {
+        return serde(POPULARITY_SKETCH);
+    }
+
+    private static <T> Serde<T> serde(BinaryCodec<T> codec) {
+        return Serdes.serdeFrom(new BinarySerializer<>(codec), new BinaryDeserializer<>(codec));
+    }
+
+    private static <T> void writeNullable(BinaryWriter out, T value, BinaryCodec<T> codec) {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            codec.write(out, value);
+        }
+    }
+
+    private static <T> T readNullable(BinaryReader in, BinaryCodec<T> codec) {
+        return in.readBoolean() ? codec.read(in) : null;
+    }
+}
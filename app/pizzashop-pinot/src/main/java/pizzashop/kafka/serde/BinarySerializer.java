@@ -0,0 +1,36 @@
+package pizzashop.kafka.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class BinarySerializer<T> implements Serializer<T> {
+    // Bumped whenever a codec changes its layout, records of another version are rejected and the application has to
+    // be reset. 2: TrackedOrder.enteredAt, 3: pre-parsed event time micros in Order, OrderStatus, OrderItemWithContext,
+    // HydratedOrderItem and TrackedOrder
+    static final int FORMAT_VERSION = 3;
+
+    private static final ThreadLocal<BinaryWriter> WRITERS = ThreadLocal.withInitial(() -> new BinaryWriter(512));
+
+    private final BinaryCodec<T> codec;
+
+    public BinarySerializer(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(final String topic, final T data) {
+        if (data == null) {
+            return null;
+        }
+
+        BinaryWriter writer = WRITERS.get();
+        writer.reset();
+        try {
+            writer.writeByte(FORMAT_VERSION);
+            codec.write(writer, data);
+            return writer.toByteArray();
+        } catch (final RuntimeException e) {
+            throw new SerializationException("Error serializing binary message", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pizzashop.kafka.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+HyperLogLog distinct counter (Flajolet et al.) with 2^precision one byte registers. With the default precision of 11
+it takes 2KB and has a standard error of about 2.3%. Small cardinalities are estimated with linear counting.
+Counters of the same precision are merged by keeping the largest register of both.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 11;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        this(precision, new byte[1 << precision]);
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    public static HyperLogLog of(int precision, byte[] registers) {
+        if (registers.length != 1 << precision) {
+            throw new IllegalArgumentException("Expected " + (1 << precision) + " registers, got " + registers.length);
+        }
+        return new HyperLogLog(precision, registers);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // the remaining bits, with a sentinel so the rank is bounded when they are all zero
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge precision " + other.precision + " into " + precision);
+        }
+        for (int index = 0; index < registers.length; index++) {
+            registers[index] = (byte) Math.max(registers[index], other.registers[index]);
+        }
+        return this;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public byte[] registers() {
+        return registers;
+    }
+
+    /* 64 bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer to spread the high bits */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,138 @@
+package pizzashop.kafka.sketch;
+
+import java.util.Arrays;
+
+/*
+Fixed memory, mergeable latency histogram in the spirit of HdrHistogram.
+
+Values are non-negative durations in microseconds. Values below 64 get a bucket each, larger ones are grouped in
+log-linear buckets: every power of two is split into 32 sub-buckets, so a recorded value is off by at most 1/32 (~3%)
+of its magnitude. Values above MAX_VALUE (~12.7 days) are clamped into the last bucket.
+
+Percentiles walk the fixed number of buckets, so reads take the same time however many values were recorded, and two
+histograms are merged by adding their counts.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int LINEAR_VALUES = SUB_BUCKETS * 2;
+    static final int MAX_EXPONENT = 39;
+    public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    public static final int BUCKETS = LINEAR_VALUES + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    public void record(long valueMicros) {
+        record(valueMicros, 1);
+    }
+
+    public void record(long valueMicros, long count) {
+        long value = Math.min(Math.max(0, valueMicros), MAX_VALUE);
+        counts[index(value)] += count;
+        totalCount += count;
+        sum += value * count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public LatencyHistogram merge(LatencyHistogram other) {
+        for (int index = 0; index < BUCKETS; index++) {
+            counts[index] += other.counts[index];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long totalCount() {
+        return totalCount;
+    }
+
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /* Value at the given percentile (0-100), reported as the middle of its bucket and kept within [min, max] */
+    public long percentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * totalCount));
+        if (rank >= totalCount) {
+            return max;
+        }
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                long lower = lowerBound(index);
+                long middle = lower + (bucketWidth(index) - 1) / 2;
+                return Math.min(Math.max(middle, min), max);
+            }
+        }
+        return max;
+    }
+
+    static int index(long value) {
+        if (value < LINEAR_VALUES) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_VALUES + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_VALUES) {
+            return index;
+        }
+        int offset = index - LINEAR_VALUES;
+        int shift = offset / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + offset % SUB_BUCKETS) << shift;
+    }
+
+    static long bucketWidth(int index) {
+        return index < LINEAR_VALUES ? 1 : 1L << ((index - LINEAR_VALUES) / SUB_BUCKETS + 1);
+    }
+
+    /* Raw state, for the serde. Only the counts that aren't zero are worth writing. */
+    public long[] counts() {
+        return counts;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public static LatencyHistogram of(long[] counts, long sum, long min, long max) {
+        if (counts.length != BUCKETS) {
+            throw new IllegalArgumentException("Expected " + BUCKETS + " buckets, got " + counts.length);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        System.arraycopy(counts, 0, histogram.counts, 0, BUCKETS);
+        histogram.totalCount = Arrays.stream(counts).sum();
+        histogram.sum = sum;
+        histogram.min = histogram.totalCount == 0 ? Long.MAX_VALUE : min;
+        histogram.max = max;
+        return histogram;
+    }
+}
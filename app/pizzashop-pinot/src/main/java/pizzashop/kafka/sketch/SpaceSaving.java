@@ -0,0 +1,156 @@
+package pizzashop.kafka.sketch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Space-Saving heavy hitters summary (Metwally et al.), tracking at most capacity keys.
+
+When a new key arrives and the summary is full, the key with the smallest count is replaced and the new key inherits
+that count as its error, so a reported count overestimates the real one by at most its error. Any key occurring more
+than total / capacity times is guaranteed to be tracked. Summaries are merged by adding the counters of both and
+keeping the capacity largest ones, see merge.
+
+Each counter also carries the summed quantity of its key and a label (e.g. the product image) for display.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<String, Counter> counters;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(String key, String label, long quantity) {
+        add(key, label, 1, 0, quantity);
+    }
+
+    /*
+    Sums the counters of both summaries and keeps the capacity largest. A key missing from a full summary may still
+    have occurred up to its smallest count, which is added to the count and error of the key, so reported counts keep
+    overestimating by at most their error. Going through add instead would evict a counter for every new key and charge
+    its count to the next one.
+     */
+    public SpaceSaving merge(SpaceSaving other) {
+        long missing = minCount();
+        long otherMissing = other.minCount();
+        List<Counter> merged = new ArrayList<>(counters.size() + other.counters.size());
+        for (Counter counter : counters.values()) {
+            Counter otherCounter = other.counters.get(counter.key);
+            merged.add(otherCounter != null
+                    ? new Counter(counter.key, counter.label, counter.count + otherCounter.count,
+                            counter.error + otherCounter.error, counter.quantity + otherCounter.quantity)
+                    : new Counter(counter.key, counter.label, counter.count + otherMissing,
+                            counter.error + otherMissing, counter.quantity));
+        }
+        for (Counter otherCounter : other.counters.values()) {
+            if (!counters.containsKey(otherCounter.key)) {
+                merged.add(new Counter(otherCounter.key, otherCounter.label, otherCounter.count + missing,
+                        otherCounter.error + missing, otherCounter.quantity));
+            }
+        }
+
+        merged.sort(Comparator.comparingLong(Counter::count).reversed());
+        counters.clear();
+        for (Counter counter : merged.subList(0, Math.min(capacity, merged.size()))) {
+            counters.put(counter.key, counter);
+        }
+        return this;
+    }
+
+    /* The k keys with the highest counts, highest first */
+    public List<Counter> top(int k) {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort(Comparator.comparingLong(Counter::count).reversed());
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public Collection<Counter> counters() {
+        return counters.values();
+    }
+
+    /* Restores a counter as it was serialized, without going through the replacement policy */
+    public void restore(String key, String label, long count, long error, long quantity) {
+        counters.put(key, new Counter(key, label, count, error, quantity));
+    }
+
+    /* Most times a key that isn't tracked may have occurred, zero until the summary is full */
+    private long minCount() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (Counter counter : counters.values()) {
+            min = Math.min(min, counter.count);
+        }
+        return min;
+    }
+
+    private void add(String key, String label, long count, long error, long quantity) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count += count;
+            counter.error += error;
+            counter.quantity += quantity;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new Counter(key, label, count, error, quantity));
+            return;
+        }
+
+        Counter smallest = null;
+        for (Counter candidate : counters.values()) {
+            if (smallest == null || candidate.count < smallest.count) {
+                smallest = candidate;
+            }
+        }
+        counters.remove(smallest.key);
+        counters.put(key, new Counter(key, label, smallest.count + count, smallest.count + error, quantity));
+    }
+
+    public static class Counter {
+        private final String key;
+        private final String label;
+        private long count;
+        private long error;
+        private long quantity;
+
+        Counter(String key, String label, long count, long error, long quantity) {
+            this.key = key;
+            this.label = label;
+            this.count = count;
+            this.error = error;
+            this.quantity = quantity;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long error() {
+            return error;
+        }
+
+        public long quantity() {
+            return quantity;
+        }
+    }
+}
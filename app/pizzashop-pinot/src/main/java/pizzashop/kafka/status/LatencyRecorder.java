@@ -0,0 +1,33 @@
+package pizzashop.kafka.status;
+
+import org.apache.kafka.streams.state.WindowStore;
+import pizzashop.kafka.sketch.LatencyHistogram;
+
+/*
+Time spent in each status, added to the histogram of the status and minute in the latencies store.
+
+Every update goes through the store, so it is part of the task's state when the offsets of its record are committed
+and a crash can't lose it. The store is cached: fetching and putting the histogram of the current minute hits the
+record cache, and the updates of a window reach RocksDB and the changelog once per commit.
+ */
+class LatencyRecorder {
+    private final WindowStore<String, LatencyHistogram> latencies;
+
+    LatencyRecorder(WindowStore<String, LatencyHistogram> latencies) {
+        this.latencies = latencies;
+    }
+
+    /* Adds the time spent in a status to the histogram of the status for the window of the record */
+    void record(String status, long micros, long timestamp) {
+        if (micros < 0) {
+            return;
+        }
+        long windowStart = timestamp - Math.floorMod(timestamp, OrderStatusTracker.LATENCIES_WINDOW.toMillis());
+        LatencyHistogram histogram = latencies.fetch(status, windowStart);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+        }
+        histogram.record(micros);
+        latencies.put(status, histogram, windowStart);
+    }
+}
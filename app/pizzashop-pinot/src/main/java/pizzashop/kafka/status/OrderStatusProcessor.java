@@ -0,0 +1,107 @@
+package pizzashop.kafka.status;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import pizzashop.kafka.model.EnrichedOrder;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* Enriches each status change from the stored order and purges expired orders */
+class OrderStatusProcessor implements Processor<String, OrderStatus, String, EnrichedOrder> {
+    private final OrderStatusTracker tracker;
+    private ProcessorContext<String, EnrichedOrder> context;
+    private TrackerStores stores;
+
+    OrderStatusProcessor(OrderStatusTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, EnrichedOrder> context) {
+        this.context = context;
+        this.stores = new TrackerStores(context);
+        indexStoredOrders();
+        countIndexedOrders();
+        // stream time, so replaying old data doesn't purge orders that are still being processed
+        context.schedule(OrderStatusTracker.PURGE_INTERVAL, PunctuationType.STREAM_TIME, this::purge);
+    }
+
+    @Override
+    public void process(Record<String, OrderStatus> record) {
+        if (record.key() == null || record.value() == null) {
+            return;
+        }
+
+        TrackedOrder tracked = stores.orders.get(record.key());
+        if (tracked == null) {
+            tracked = new TrackedOrder();
+        }
+        long previousExpiresAt = tracked.expiresAt;
+
+        if (tracked.order == null) {
+            if (tracked.pendingStatuses.size() < OrderStatusTracker.MAX_PENDING_STATUSES) {
+                tracked.pendingStatuses.add(record.value());
+            } else {
+                tracker.enrichedOrders.drop();
+            }
+            tracked.expiresAt = record.timestamp() + tracker.openOrderTtl.toMillis();
+        } else {
+            EnrichedOrder enrichedOrder = tracker.apply(tracked, record.value(), record.timestamp(), stores);
+            context.forward(record.withValue(enrichedOrder));
+        }
+        OrderStatusTracker.store(stores, record.key(), tracked, previousExpiresAt);
+    }
+
+    /* Orders whose expiry interval ended by stream time, the rounded up expiry is never earlier than the real one */
+    private void purge(long streamTime) {
+        List<KeyValue<String, String>> expired = new ArrayList<>();
+        // the upper bound sorts after every order id of the orders that expire at stream time
+        try (KeyValueIterator<String, String> range = stores.expiryIndex.range(
+                OrderStatusTracker.expiryKey(0, ""), OrderStatusTracker.expiryKey(streamTime, "\uffff"))) {
+            range.forEachRemaining(expired::add);
+        }
+        for (KeyValue<String, String> entry : expired) {
+            TrackedOrder tracked = stores.orders.get(entry.value);
+            if (tracked != null) {
+                OrderStatusTracker.unindex(tracked, stores);
+                stores.orders.delete(entry.value);
+            }
+            stores.expiryIndex.delete(entry.key);
+        }
+    }
+
+    /* Indexes the orders stored before the expiry index existed, runs once when the index is still empty */
+    private void indexStoredOrders() {
+        try (KeyValueIterator<String, String> indexed = stores.expiryIndex.all()) {
+            if (indexed.hasNext()) {
+                return;
+            }
+        }
+        try (KeyValueIterator<String, TrackedOrder> all = stores.orders.all()) {
+            all.forEachRemaining(entry -> stores.expiryIndex.put(
+                    OrderStatusTracker.expiryKey(OrderStatusTracker.expiryBucket(entry.value.expiresAt), entry.key),
+                    entry.key));
+        }
+    }
+
+    /* Counts the orders indexed before the status counts existed, runs once when the counts are still empty */
+    private void countIndexedOrders() {
+        try (KeyValueIterator<String, Long> counted = stores.statusCounts.all()) {
+            if (counted.hasNext()) {
+                return;
+            }
+        }
+        try (KeyValueIterator<String, OrderStatusEntry> all = stores.statusIndex.all()) {
+            all.forEachRemaining(entry -> OrderStatusTracker.count(stores.statusCounts,
+                    entry.key.substring(0, entry.key.indexOf('/')), entry.value.enteredAt, 1));
+        }
+    }
+}
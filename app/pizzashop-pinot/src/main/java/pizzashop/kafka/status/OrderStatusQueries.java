@@ -0,0 +1,201 @@
+package pizzashop.kafka.status;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import pizzashop.kafka.LocalStores;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.sketch.LatencyHistogram;
+import pizzashop.models.StatusLatency;
+import pizzashop.models.StatusTimings;
+import pizzashop.models.StuckOrder;
+import pizzashop.pinot.PinotTimestamps;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+Answers the status endpoints from the local orders by status index and counts instead of scanning orders_enriched.
+
+Each task keeps its own sorted index and counts, so results of the local stores are merged here. Only the partitions
+assigned to this instance are visible, so every read first checks with LocalStores that they are all of them and
+fails with an InvalidStateStoreException otherwise, rather than answering from part of the orders.
+ */
+@ApplicationScoped
+public class OrderStatusQueries {
+    private static final double MICROS_PER_SECOND = 1_000_000d;
+
+    @Inject
+    KafkaStreams streams;
+
+    @Inject
+    LocalStores localStores;
+
+    /*
+    Time in status of the orders currently in each status, except the excluded ones. The counts of orders per status
+    and second they entered it are turned into a LatencyHistogram of their ages, so the cost depends on the number of
+    distinct seconds rather than on the number of orders, and percentiles are read the same way as statusLatencies.
+     */
+    public Multi<StatusTimings> statusTimings(Instant now, Set<String> excludedStatuses) {
+        long nowMicros = toEpochMicros(now);
+        return Uni.createFrom().item(() -> {
+                    localStores.partitions(OrderStatusTracker.STATUS_COUNTS_STORE);
+                    ReadOnlyKeyValueStore<String, Long> statusCounts = streams.store(
+                            StoreQueryParameters.fromNameAndType(OrderStatusTracker.STATUS_COUNTS_STORE,
+                                    QueryableStoreTypes.keyValueStore()));
+                    // tasks hold their own counts, possibly for the same seconds
+                    Map<String, Map<Long, Long>> countsByStatus = new TreeMap<>();
+                    try (KeyValueIterator<String, Long> all = statusCounts.all()) {
+                        while (all.hasNext()) {
+                            KeyValue<String, Long> entry = all.next();
+                            int separator = entry.key.indexOf('/');
+                            String status = entry.key.substring(0, separator);
+                            if (excludedStatuses.contains(status)) {
+                                continue;
+                            }
+                            countsByStatus.computeIfAbsent(status, key -> new HashMap<>())
+                                    .merge(Long.parseLong(entry.key.substring(separator + 1)), entry.value, Long::sum);
+                        }
+                    }
+                    return countsByStatus;
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().transformToMulti(countsByStatus -> Multi.createFrom().iterable(countsByStatus.entrySet()))
+                .map(counts -> {
+                    LatencyHistogram ages = new LatencyHistogram();
+                    counts.getValue().forEach((second, count) ->
+                            ages.record(nowMicros - TimeUnit.SECONDS.toMicros(second), count));
+                    return new StatusTimings(counts.getKey(),
+                            ages.min() / MICROS_PER_SECOND,
+                            ages.percentile(50) / MICROS_PER_SECOND,
+                            ages.mean() / MICROS_PER_SECOND,
+                            ages.percentile(75) / MICROS_PER_SECOND,
+                            ages.percentile(90) / MICROS_PER_SECOND,
+                            ages.percentile(99) / MICROS_PER_SECOND,
+                            ages.max() / MICROS_PER_SECOND);
+                });
+    }
+
+    /*
+    Orders that entered the status more than stuckTime ago, oldest first. The index of each local partition is already
+    sorted by the time orders entered their status, so one range per partition is opened and merged as the response
+    is written, without reading the matching orders upfront.
+     */
+    public Multi<StuckOrder> stuckOrders(String status, long stuckTimeInMillis, Instant now) {
+        long nowMicros = toEpochMicros(now);
+        long cutoff = nowMicros - TimeUnit.MILLISECONDS.toMicros(stuckTimeInMillis);
+        return Multi.createFrom().resource(() -> oldestFirst(status, cutoff),
+                        entries -> Multi.createFrom().iterable(() -> entries))
+                .withFinalizer(OldestFirst::close)
+                .map(entry -> new StuckOrder(entry.id, entry.price,
+                        PinotTimestamps.format(TimeUnit.MICROSECONDS.toMillis(entry.enteredAt)),
+                        (nowMicros - entry.enteredAt) / MICROS_PER_SECOND))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /*
+    Time spent in each status by the orders that left it within the lookback. The per minute histograms of every local
+    task are merged, so the cost depends on the number of windows, not on the number of orders.
+     */
+    public Uni<List<StatusLatency>> statusLatencies(Instant now, Duration lookback) {
+        return Uni.createFrom().item(() -> {
+                    localStores.partitions(OrderStatusTracker.LATENCIES_STORE);
+                    ReadOnlyWindowStore<String, LatencyHistogram> latencies = streams.store(
+                            StoreQueryParameters.fromNameAndType(OrderStatusTracker.LATENCIES_STORE,
+                                    QueryableStoreTypes.windowStore()));
+                    Map<String, LatencyHistogram> byStatus = new TreeMap<>();
+                    try (KeyValueIterator<Windowed<String>, LatencyHistogram> windows =
+                                 latencies.fetchAll(now.minus(lookback), now)) {
+                        windows.forEachRemaining(window -> byStatus
+                                .computeIfAbsent(window.key.key(), status -> new LatencyHistogram())
+                                .merge(window.value));
+                    }
+
+                    List<StatusLatency> statusLatencies = new ArrayList<>(byStatus.size());
+                    byStatus.forEach((status, histogram) -> statusLatencies.add(new StatusLatency(status,
+                            histogram.totalCount(),
+                            histogram.mean() / MICROS_PER_SECOND,
+                            histogram.percentile(50) / MICROS_PER_SECOND,
+                            histogram.percentile(75) / MICROS_PER_SECOND,
+                            histogram.percentile(90) / MICROS_PER_SECOND,
+                            histogram.percentile(99) / MICROS_PER_SECOND,
+                            histogram.max() / MICROS_PER_SECOND)));
+                    return statusLatencies;
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    private OldestFirst oldestFirst(String status, long cutoff) {
+        List<KeyValueIterator<String, OrderStatusEntry>> ranges = new ArrayList<>();
+        try {
+            for (int partition : localStores.partitions(OrderStatusTracker.STATUS_INDEX_STORE)) {
+                ReadOnlyKeyValueStore<String, OrderStatusEntry> index = streams.store(StoreQueryParameters
+                        .fromNameAndType(OrderStatusTracker.STATUS_INDEX_STORE,
+                                QueryableStoreTypes.<String, OrderStatusEntry>keyValueStore())
+                        .withPartition(partition));
+                // the upper bound sorts after every order id of the orders that entered the status at cutoff
+                ranges.add(index.range(
+                        OrderStatusTracker.indexKey(status, 0, ""),
+                        OrderStatusTracker.indexKey(status, cutoff, "\uffff")));
+            }
+        } catch (RuntimeException e) {
+            ranges.forEach(KeyValueIterator::close);
+            throw e;
+        }
+        return new OldestFirst(ranges);
+    }
+
+    /* Merges sorted ranges of the index, index keys order orders by the time they entered their status */
+    private static final class OldestFirst implements Iterator<OrderStatusEntry> {
+        private final List<KeyValueIterator<String, OrderStatusEntry>> ranges;
+        private final PriorityQueue<KeyValueIterator<String, OrderStatusEntry>> next =
+                new PriorityQueue<>(Comparator.comparing(KeyValueIterator::peekNextKey));
+
+        OldestFirst(List<KeyValueIterator<String, OrderStatusEntry>> ranges) {
+            this.ranges = ranges;
+            for (KeyValueIterator<String, OrderStatusEntry> range : ranges) {
+                if (range.hasNext()) {
+                    next.add(range);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !next.isEmpty();
+        }
+
+        @Override
+        public OrderStatusEntry next() {
+            KeyValueIterator<String, OrderStatusEntry> range = next.poll();
+            if (range == null) {
+                throw new NoSuchElementException();
+            }
+            OrderStatusEntry entry = range.next().value;
+            if (range.hasNext()) {
+                next.add(range);
+            }
+            return entry;
+        }
+
+        void close() {
+            ranges.forEach(KeyValueIterator::close);
+        }
+    }
+
+    private static long toEpochMicros(Instant instant) {
+        return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,167 @@
+package pizzashop.kafka.status;
+
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.state.KeyValueStore;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.StageMetrics;
+import pizzashop.kafka.model.EnrichedOrder;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.models.Order;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/*
+Incremental replacement of the orders/statuses windowed stream-stream join.
+
+Every order is stored once in a key-value store keyed by order id, and each status change is enriched from it as it
+arrives, so state grows with the number of orders in flight rather than with six hours of both streams. Entries are
+purged a while after the order is delivered, or after openOrderTtl without any update for orders that never complete.
+An index of the orders by expiry lets each purge read only the orders that expired instead of the whole store.
+
+Alongside, it keeps an index of the orders by current status, the number of orders in each status per second they
+entered it, and per minute histograms of the time spent in each status, all queried through OrderStatusQueries.
+
+Both processors must run in the same task, which holds as long as the orders and statuses topics are co-partitioned
+by order id, the same requirement the windowed join had.
+
+The trackedOrders stage counts the orders stored, with their lag from Order.createdAt, the enrichedOrders stage the
+records published, with their lag from OrderStatus.updatedAt, and the statuses dropped while waiting for their order.
+ */
+public class OrderStatusTracker {
+    public static final String STORE = "order-status-tracker";
+    // orders keyed by status/enteredAt/id, so the orders in a status are range scanned oldest first
+    public static final String STATUS_INDEX_STORE = "orders-by-status";
+    // number of orders currently in each status per second they entered it, keyed by status/second
+    public static final String STATUS_COUNTS_STORE = "status-entry-counts";
+    // order ids keyed by expiry/id, so a purge only range scans the orders that expired
+    public static final String EXPIRY_INDEX_STORE = "orders-by-expiry";
+    // time spent in each status by the orders that left it, per status and minute
+    public static final String LATENCIES_STORE = "status-latencies";
+    public static final Duration LATENCIES_WINDOW = Duration.ofMinutes(1);
+    public static final Duration LATENCIES_RETENTION = Duration.ofHours(6);
+
+    static final String DELIVERED = "DELIVERED";
+    // bounds the statuses parked for an order that hasn't been seen yet
+    static final int MAX_PENDING_STATUSES = 16;
+    static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    final Duration deliveredTtl;
+    final Duration openOrderTtl;
+    final StageMetrics trackedOrders;
+    final StageMetrics enrichedOrders;
+
+    public OrderStatusTracker(Duration deliveredTtl, Duration openOrderTtl, StageMetrics trackedOrders,
+                              StageMetrics enrichedOrders) {
+        this.deliveredTtl = deliveredTtl;
+        this.openOrderTtl = openOrderTtl;
+        this.trackedOrders = trackedOrders;
+        this.enrichedOrders = enrichedOrders;
+    }
+
+    public ProcessorSupplier<String, Order, String, EnrichedOrder> orders() {
+        return () -> new TrackedOrderProcessor(this);
+    }
+
+    public ProcessorSupplier<String, OrderStatus, String, EnrichedOrder> statuses() {
+        return () -> new OrderStatusProcessor(this);
+    }
+
+    /* Applies a status to the tracked order, keeps the status index in step and builds the record to publish */
+    EnrichedOrder apply(TrackedOrder tracked, OrderStatus orderStatus, long timestamp, TrackerStores stores) {
+        Order order = tracked.order;
+        long updatedAt = EventTime.micros(orderStatus.updatedAtMicros, orderStatus.updatedAt);
+        // statuses can arrive out of order, only a newer one moves the order forward
+        if (updatedAt == EventTime.UNKNOWN || updatedAt >= tracked.updatedAtMicros) {
+            if (!Objects.equals(orderStatus.status, tracked.status)) {
+                long enteredAt = updatedAt != EventTime.UNKNOWN ? updatedAt : TimeUnit.MILLISECONDS.toMicros(timestamp);
+                if (tracked.status != null) {
+                    stores.latencies.record(tracked.status, enteredAt - tracked.enteredAt, timestamp);
+                }
+                unindex(tracked, stores);
+                tracked.enteredAt = enteredAt;
+                stores.statusIndex.put(indexKey(orderStatus.status, tracked.enteredAt, order.id),
+                        new OrderStatusEntry(order.id, order.price, tracked.enteredAt));
+                count(stores.statusCounts, orderStatus.status, tracked.enteredAt, 1);
+            }
+            tracked.status = orderStatus.status;
+            tracked.updatedAtMicros = updatedAt != EventTime.UNKNOWN ? updatedAt : 0;
+        }
+        tracked.expiresAt = timestamp + (DELIVERED.equals(tracked.status) ? deliveredTtl : openOrderTtl).toMillis();
+
+        EnrichedOrder enrichedOrder = new EnrichedOrder();
+        enrichedOrder.id = order.id;
+        enrichedOrder.userId = order.userId;
+        enrichedOrder.status = orderStatus.status;
+        enrichedOrder.createdAt = orderStatus.updatedAt;
+        enrichedOrder.createdAtMicros = orderStatus.updatedAtMicros;
+        enrichedOrder.price = order.price;
+        // orders_enriched is a partial upsert table, the items only need to be sent once per order
+        if (!tracked.itemsPublished) {
+            enrichedOrder.items = order.items;
+            tracked.itemsPublished = true;
+        }
+        enrichedOrders.record(updatedAt);
+        return enrichedOrder;
+    }
+
+    /*
+    Stores the tracked order and keeps the expiry index in step. Expiries are indexed rounded up to the purge interval,
+    so the order only moves in the index when its expiry crosses into another interval, not on every status.
+     */
+    static void store(TrackerStores stores, String orderId, TrackedOrder tracked, long previousExpiresAt) {
+        long bucket = expiryBucket(tracked.expiresAt);
+        if (previousExpiresAt == 0 || expiryBucket(previousExpiresAt) != bucket) {
+            if (previousExpiresAt != 0) {
+                stores.expiryIndex.delete(expiryKey(expiryBucket(previousExpiresAt), orderId));
+            }
+            stores.expiryIndex.put(expiryKey(bucket, orderId), orderId);
+        }
+        stores.orders.put(orderId, tracked);
+    }
+
+    static long expiryBucket(long expiresAt) {
+        return expiresAt + Math.floorMod(-expiresAt, PURGE_INTERVAL.toMillis());
+    }
+
+    /* Expiries are zero padded so the lexicographic order of the keys is the chronological one */
+    static String expiryKey(long bucket, String orderId) {
+        return String.format("%019d", bucket) + "/" + orderId;
+    }
+
+    static void unindex(TrackedOrder tracked, TrackerStores stores) {
+        if (tracked.status != null && tracked.order != null) {
+            stores.statusIndex.delete(indexKey(tracked.status, tracked.enteredAt, tracked.order.id));
+            count(stores.statusCounts, tracked.status, tracked.enteredAt, -1);
+        }
+    }
+
+    /* Adds to the number of orders in the status that entered it in the same second, dropping the key at zero */
+    static void count(KeyValueStore<String, Long> statusCounts, String status, long enteredAt, long delta) {
+        String key = countKey(status, enteredAt);
+        Long count = statusCounts.get(key);
+        long updated = (count == null ? 0 : count) + delta;
+        if (updated > 0) {
+            statusCounts.put(key, updated);
+        } else {
+            statusCounts.delete(key);
+        }
+    }
+
+    /* Seconds are zero padded so the keys of a status sort oldest first */
+    public static String countKey(String status, long enteredAt) {
+        return indexPrefix(status) + String.format("%019d", TimeUnit.MICROSECONDS.toSeconds(enteredAt));
+    }
+
+    public static String indexPrefix(String status) {
+        return status + "/";
+    }
+
+    /* Entered times are zero padded so the lexicographic order of the keys is the chronological one */
+    public static String indexKey(String status, long enteredAt, String orderId) {
+        return indexPrefix(status) + String.format("%019d", enteredAt) + "/" + (orderId == null ? "" : orderId);
+    }
+}
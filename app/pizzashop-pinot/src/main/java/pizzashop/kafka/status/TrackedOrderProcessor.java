@@ -0,0 +1,49 @@
+package pizzashop.kafka.status;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import pizzashop.kafka.EventTime;
+import pizzashop.kafka.model.EnrichedOrder;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.models.Order;
+
+/* Stores incoming orders and flushes the statuses that were waiting for them */
+class TrackedOrderProcessor implements Processor<String, Order, String, EnrichedOrder> {
+    private final OrderStatusTracker tracker;
+    private ProcessorContext<String, EnrichedOrder> context;
+    private TrackerStores stores;
+
+    TrackedOrderProcessor(OrderStatusTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, EnrichedOrder> context) {
+        this.context = context;
+        this.stores = new TrackerStores(context);
+    }
+
+    @Override
+    public void process(Record<String, Order> record) {
+        if (record.key() == null || record.value() == null) {
+            return;
+        }
+
+        TrackedOrder tracked = stores.orders.get(record.key());
+        if (tracked == null) {
+            tracked = new TrackedOrder();
+        }
+        long previousExpiresAt = tracked.expiresAt;
+        tracked.order = record.value();
+        tracked.expiresAt = record.timestamp() + tracker.openOrderTtl.toMillis();
+
+        for (OrderStatus pending : tracked.pendingStatuses) {
+            context.forward(record.withValue(tracker.apply(tracked, pending, record.timestamp(), stores)));
+        }
+        tracked.pendingStatuses.clear();
+        OrderStatusTracker.store(stores, record.key(), tracked, previousExpiresAt);
+        tracker.trackedOrders.record(EventTime.micros(tracked.order.createdAtMicros, tracked.order.createdAt));
+    }
+}
@@ -0,0 +1,26 @@
+package pizzashop.kafka.status;
+
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.sketch.LatencyHistogram;
+
+/* The stores shared by the processors of the status tracker, looked up once per task */
+class TrackerStores {
+    final KeyValueStore<String, TrackedOrder> orders;
+    final KeyValueStore<String, OrderStatusEntry> statusIndex;
+    final KeyValueStore<String, Long> statusCounts;
+    final KeyValueStore<String, String> expiryIndex;
+    final LatencyRecorder latencies;
+
+    TrackerStores(ProcessorContext<?, ?> context) {
+        this.orders = context.getStateStore(OrderStatusTracker.STORE);
+        this.statusIndex = context.getStateStore(OrderStatusTracker.STATUS_INDEX_STORE);
+        this.statusCounts = context.getStateStore(OrderStatusTracker.STATUS_COUNTS_STORE);
+        this.expiryIndex = context.getStateStore(OrderStatusTracker.EXPIRY_INDEX_STORE);
+        WindowStore<String, LatencyHistogram> latencyStore = context.getStateStore(OrderStatusTracker.LATENCIES_STORE);
+        this.latencies = new LatencyRecorder(latencyStore);
+    }
+}
@@ -14,6 +14,8 @@ public class Order {
     public String id;
     public String userId;
     public String createdAt;
+    // createdAt in epoch micros, set instead of it with EVENT_TIMESTAMPS=epoch, see EventTime
+    public long createdAtMicros;
 
     public double price;
 
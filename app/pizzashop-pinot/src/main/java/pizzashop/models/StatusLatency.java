@@ -0,0 +1,63 @@
+package pizzashop.models;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/*
+Time spent in a status by the orders that moved on from it, in seconds.
+ */
+@RegisterForReflection
+public class StatusLatency {
+
+    private final String status;
+    private final long count;
+    private final double avg;
+    private final double percentile50;
+    private final double percentile75;
+    private final double percentile90;
+    private final double percentile99;
+    private final double max;
+
+    public StatusLatency(String status, long count, double avg, double percentile50, double percentile75,
+                         double percentile90, double percentile99, double max) {
+        this.status = status;
+        this.count = count;
+        this.avg = avg;
+        this.percentile50 = percentile50;
+        this.percentile75 = percentile75;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+        this.max = max;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAvg() {
+        return avg;
+    }
+
+    public double getPercentile50() {
+        return percentile50;
+    }
+
+    public double getPercentile75() {
+        return percentile75;
+    }
+
+    public double getPercentile90() {
+        return percentile90;
+    }
+
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
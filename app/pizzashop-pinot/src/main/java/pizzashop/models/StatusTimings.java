@@ -0,0 +1,63 @@
+package pizzashop.models;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/*
+Time spent so far by the orders currently in a status, in seconds.
+ */
+@RegisterForReflection
+public class StatusTimings {
+
+    private final String status;
+    private final double min;
+    private final double percentile50;
+    private final double avg;
+    private final double percentile75;
+    private final double percentile90;
+    private final double percentile99;
+    private final double max;
+
+    public StatusTimings(String status, double min, double percentile50, double avg, double percentile75,
+                         double percentile90, double percentile99, double max) {
+        this.status = status;
+        this.min = min;
+        this.percentile50 = percentile50;
+        this.avg = avg;
+        this.percentile75 = percentile75;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+        this.max = max;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getPercentile50() {
+        return percentile50;
+    }
+
+    public double getAvg() {
+        return avg;
+    }
+
+    public double getPercentile75() {
+        return percentile75;
+    }
+
+    public double getPercentile90() {
+        return percentile90;
+    }
+
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,37 @@
+package pizzashop.models;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class StuckOrder {
+
+    private final String id;
+    private final double price;
+    // when the order entered its status, rendered like the TIMESTAMP columns of Pinot
+    private final String ts;
+    // seconds spent in the status
+    private final double timeInStatus;
+
+    public StuckOrder(String id, double price, String ts, double timeInStatus) {
+        this.id = id;
+        this.price = price;
+        this.ts = ts;
+        this.timeInStatus = timeInStatus;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getTs() {
+        return ts;
+    }
+
+    public double getTimeInStatus() {
+        return timeInStatus;
+    }
+}
@@ -0,0 +1,226 @@
+package pizzashop.pinot;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.pinot.client.Connection;
+import org.apache.pinot.client.ConnectionFactory;
+import org.apache.pinot.client.JsonAsyncHttpPinotClientTransportFactory;
+import org.apache.pinot.client.PinotClientTransport;
+import org.apache.pinot.client.ResultSet;
+import org.apache.pinot.client.ResultSetGroup;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+The one Pinot client of the application. All brokers share a single asynchronous HTTP transport, queries in flight
+are bounded by PinotExecutor and each query by a timeout. The 0.11 transport factory exposes no connection pool
+setting, so the connections in use are bounded by the PinotExecutor permits rather than by the pool. The caller stops
+waiting at the query timeout, the transport gives up on the request at its own timeout, which also frees the query's
+PinotExecutor permit.
+
+Each query goes to the healthy broker with the lowest recent latency. A broker is ejected after a number of
+consecutive failures or a failed health check, and comes back once its /health endpoint answers again, so a slow or
+dead broker no longer stalls every dashboard request.
+
+Every query is recorded in QueryMetrics under its endpoint and template.
+ */
+@ApplicationScoped
+public class PinotClient {
+
+    private static final Logger LOG = Logger.getLogger(PinotClient.class);
+
+    // Weight of the latest query in the moving average of a broker's latency
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    @ConfigProperty(name = "pizzashop.pinot.brokers", defaultValue = "localhost:8099")
+    List<String> brokerHosts;
+
+    @ConfigProperty(name = "pizzashop.pinot.query-timeout-ms", defaultValue = "5000")
+    long queryTimeoutMs;
+
+    @ConfigProperty(name = "pizzashop.pinot.request-timeout-ms", defaultValue = "5000")
+    int requestTimeoutMs;
+
+    @ConfigProperty(name = "pizzashop.pinot.connect-timeout-ms", defaultValue = "2000")
+    int connectTimeoutMs;
+
+    @ConfigProperty(name = "pizzashop.pinot.health-check-interval-ms", defaultValue = "5000")
+    long healthCheckIntervalMs;
+
+    @ConfigProperty(name = "pizzashop.pinot.max-consecutive-failures", defaultValue = "3")
+    int maxConsecutiveFailures;
+
+    @Inject
+    PinotExecutor executor;
+
+    @Inject
+    QueryMetrics metrics;
+
+    private List<Broker> brokers;
+    private Duration queryTimeout;
+    private HttpClient healthClient;
+    private ScheduledExecutorService healthChecks;
+
+    @PostConstruct
+    void init() {
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("brokerReadTimeoutMs", String.valueOf(requestTimeoutMs));
+        connectionProperties.setProperty("brokerConnectTimeoutMs", String.valueOf(connectTimeoutMs));
+        connectionProperties.setProperty("brokerHandshakeTimeoutMs", String.valueOf(connectTimeoutMs));
+        PinotClientTransport transport = new JsonAsyncHttpPinotClientTransportFactory()
+                .withConnectionProperties(connectionProperties)
+                .buildTransport();
+        init(hostPort -> ConnectionFactory.fromHostList(List.of(hostPort), transport));
+    }
+
+    /* Sets up the brokers with the connections given, tests hand in their own */
+    void init(Function<String, Connection> connections) {
+        brokers = brokerHosts.stream()
+                .map(hostPort -> new Broker(hostPort, connections.apply(hostPort)))
+                .toList();
+        queryTimeout = Duration.ofMillis(queryTimeoutMs);
+
+        healthClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pinot-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkHealth,
+                healthCheckIntervalMs, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        healthChecks.shutdownNow();
+    }
+
+    public Uni<ResultSet> execute(Query query) {
+        return Uni.createFrom().deferred(() -> {
+            // Selected on subscription, a Uni that is retried or subscribed again later goes to the best broker by then
+            Broker broker = selectBroker();
+            long started = System.nanoTime();
+            return executor.submit(() -> {
+                        LOG.debugf("Running %s on %s: %s", query.template(), broker.hostPort, query.sql());
+                        return broker.connection.executeAsync(query.sql());
+                    })
+                    .ifNoItem().after(queryTimeout).fail()
+                    // Only a result that arrived in time counts, one coming after the timeout was already recorded as
+                    // a failure and must neither clear the broker's failures nor be counted a second time
+                    .onItem().invoke(resultSetGroup -> {
+                        broker.recordSuccess(System.nanoTime() - started);
+                        metrics.recordSuccess(query, System.nanoTime() - started, resultSetGroup);
+                    })
+                    .map(resultSetGroup -> resultSetGroup.getResultSet(0))
+                    .onFailure().invoke(failure -> {
+                        // A query turned away by PinotExecutor never reached the broker
+                        if (!(failure instanceof RejectedExecutionException)) {
+                            // A broker failing fast must not look fast, a failure weighs at least a timed out query
+                            long penaltyNanos = Math.max(System.nanoTime() - started, queryTimeout.toNanos());
+                            broker.recordFailure(failure, penaltyNanos, maxConsecutiveFailures);
+                        }
+                        metrics.recordFailure(query, broker.hostPort, System.nanoTime() - started, failure);
+                    });
+        });
+    }
+
+    private Broker selectBroker() {
+        Comparator<Broker> byLatency = Comparator.comparingDouble(broker -> broker.latencyMillis);
+        return brokers.stream()
+                .filter(broker -> broker.healthy)
+                .min(byLatency)
+                // Every broker is ejected, keep trying the one that used to be fastest rather than failing outright
+                .orElseGet(() -> brokers.stream().min(byLatency).orElseThrow());
+    }
+
+    /* Completes once every broker has been checked */
+    CompletableFuture<Void> checkHealth() {
+        List<CompletableFuture<?>> checks = new ArrayList<>(brokers.size());
+        for (Broker broker : brokers) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + broker.hostPort + "/health"))
+                    .timeout(Duration.ofMillis(healthCheckIntervalMs))
+                    .GET()
+                    .build();
+            checks.add(healthClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        broker.recordHealthCheck(failure == null && response.statusCode() == 200);
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new));
+    }
+
+    /* Host and port of the brokers queries can currently be sent to */
+    List<String> healthyBrokers() {
+        return brokers.stream()
+                .filter(broker -> broker.healthy)
+                .map(broker -> broker.hostPort)
+                .toList();
+    }
+
+    private static class Broker {
+        private final String hostPort;
+        private final Connection connection;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private volatile double latencyMillis;
+
+        private Broker(String hostPort, Connection connection) {
+            this.hostPort = hostPort;
+            this.connection = connection;
+        }
+
+        private void recordSuccess(long elapsedNanos) {
+            recordLatency(elapsedNanos);
+            consecutiveFailures.set(0);
+        }
+
+        private void recordFailure(Throwable failure, long penaltyNanos, int maxConsecutiveFailures) {
+            recordLatency(penaltyNanos);
+            if (consecutiveFailures.incrementAndGet() >= maxConsecutiveFailures && healthy) {
+                LOG.warnf("Ejecting Pinot broker %s after %d consecutive failures, last one: %s",
+                        hostPort, maxConsecutiveFailures, failure.getMessage());
+                healthy = false;
+            }
+        }
+
+        private void recordLatency(long elapsedNanos) {
+            double elapsedMillis = elapsedNanos / 1_000_000.0;
+            latencyMillis = latencyMillis == 0
+                    ? elapsedMillis
+                    : LATENCY_WEIGHT * elapsedMillis + (1 - LATENCY_WEIGHT) * latencyMillis;
+        }
+
+        private void recordHealthCheck(boolean passed) {
+            if (passed && !healthy) {
+                LOG.infof("Pinot broker %s passed its health check, adding it back", hostPort);
+                consecutiveFailures.set(0);
+            } else if (!passed && healthy) {
+                LOG.warnf("Ejecting Pinot broker %s after a failed health check", hostPort);
+            }
+            healthy = passed;
+        }
+    }
+}
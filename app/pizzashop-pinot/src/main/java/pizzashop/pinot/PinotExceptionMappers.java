@@ -0,0 +1,23 @@
+package pizzashop.pinot;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public class PinotExceptionMappers {
+
+    @ConfigProperty(name = "pizzashop.pinot.retry-after-seconds", defaultValue = "1")
+    int retryAfterSeconds;
+
+    // PinotExecutor turns queries away once too many are in flight, the caller should back off and retry
+    @ServerExceptionMapper
+    public Response tooManyQueries(RejectedExecutionException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(e.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package pizzashop.pinot;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/*
+Bounds the Pinot queries in flight. Queries are sent with the asynchronous client, so no thread waits on a broker and
+the resources stay on the event loop. A query holds its permit until the broker answers or the transport gives up on
+it, not only until the caller stops waiting, so the bound is what the brokers actually see. Queries past the bound
+fail right away with a RejectedExecutionException rather than queueing up behind slow ones.
+ */
+@ApplicationScoped
+public class PinotExecutor {
+
+    @ConfigProperty(name = "pizzashop.pinot.max-concurrent-queries", defaultValue = "32")
+    int maxConcurrentQueries;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxConcurrentQueries);
+    }
+
+    public <T> Uni<T> submit(Supplier<CompletionStage<T>> query) {
+        return Uni.createFrom().completionStage(() -> {
+            if (!permits.tryAcquire()) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "More than " + maxConcurrentQueries + " Pinot queries in flight"));
+            }
+            try {
+                return query.get().whenComplete((result, failure) -> permits.release());
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package pizzashop.pinot;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/*
+Renders times the way the broker renders a TIMESTAMP column, java.sql.Timestamp#toString of the epoch millis in UTC,
+e.g. 2022-10-17 13:27:35.739 or 2022-10-17 13:27:35.0. Endpoints answered from local stores use it so that their
+responses can't be told apart from the Pinot ones.
+ */
+public final class PinotTimestamps {
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private PinotTimestamps() {
+    }
+
+    public static String format(long epochMillis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        StringBuilder formatted = new StringBuilder(23).append(SECONDS.format(time)).append('.');
+        if (millis == 0) {
+            return formatted.append('0').toString();
+        }
+        // Timestamp prints the fraction without its trailing zeros
+        String fraction = String.format("%03d", millis);
+        int length = fraction.length();
+        while (fraction.charAt(length - 1) == '0') {
+            length--;
+        }
+        return formatted.append(fraction, 0, length).toString();
+    }
+}
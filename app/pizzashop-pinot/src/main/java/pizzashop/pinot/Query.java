@@ -0,0 +1,8 @@
+package pizzashop.pinot;
+
+/*
+SQL bound from a QueryTemplate, with the names of the template and of the endpoint it serves so that PinotClient can
+tag its metrics with them.
+ */
+public record Query(String endpoint, String template, String sql) {
+}
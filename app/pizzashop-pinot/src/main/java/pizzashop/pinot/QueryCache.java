@@ -0,0 +1,84 @@
+package pizzashop.pinot;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.apache.pinot.client.ResultSet;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/*
+In-process cache of Pinot results keyed on the generated SQL. The dashboard polls the same handful of queries every
+second from every open tab, so most requests can be answered without a broker round trip.
+
+Entries expire at the next boundary of their time granularity rather than a fixed time after they were loaded, e.g. a
+60s entry loaded at 12:00:45 expires at 12:01:00, when the underlying minute bucket changes. Concurrent lookups of the
+same SQL share a single broker call.
+ */
+@ApplicationScoped
+public class QueryCache {
+
+    @ConfigProperty(name = "pizzashop.cache.maximum-size", defaultValue = "1000")
+    long maximumSize;
+
+    // Time sources of the cache and of the bucket boundaries, replaced in tests
+    Ticker ticker = Ticker.systemTicker();
+    LongSupplier clock = System::currentTimeMillis;
+
+    private AsyncCache<String, CachedResult> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new BucketExpiry())
+                .ticker(ticker)
+                .buildAsync();
+    }
+
+    /*
+    The in-flight load is cached as well, so callers asking for the same SQL while it runs get the same future.
+    Failed loads are dropped from the cache straight away.
+     */
+    public Uni<ResultSet> get(Query query, Duration ttl, Function<Query, Uni<ResultSet>> loader) {
+        return Uni.createFrom()
+                .completionStage(() -> cache.get(query.sql(), (sql, executor) -> loader.apply(query)
+                        .map(resultSet -> new CachedResult(resultSet, untilNextBucket(ttl, clock.getAsLong())))
+                        .subscribeAsCompletionStage()))
+                .map(CachedResult::resultSet);
+    }
+
+    static long untilNextBucket(Duration ttl, long nowMillis) {
+        long ttlMillis = ttl.toMillis();
+        long remainingMillis = ttlMillis - nowMillis % ttlMillis;
+        return TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+    }
+
+    private record CachedResult(ResultSet resultSet, long expiresAfterNanos) {
+    }
+
+    private static class BucketExpiry implements Expiry<String, CachedResult> {
+        @Override
+        public long expireAfterCreate(String key, CachedResult value, long currentTime) {
+            return value.expiresAfterNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResult value, long currentTime, long currentDuration) {
+            return value.expiresAfterNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResult value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
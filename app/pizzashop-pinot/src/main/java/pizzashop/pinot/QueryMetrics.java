@@ -0,0 +1,105 @@
+package pizzashop.pinot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.pinot.client.ExecutionStats;
+import org.apache.pinot.client.ResultSetGroup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Metrics of the queries PinotClient sends, tagged with the endpoint and the query template, exposed on /q/metrics:
+
+- pinot.query: time from sending the query until its result or failure, tagged with the outcome
+- pinot.query.broker.time: time the broker reported spending on the query (timeUsedMs)
+- pinot.query.rows: rows returned
+- pinot.query.docs.scanned: documents the broker reported scanning (numDocsScanned)
+- pinot.query.errors: failed queries, also tagged with the broker and the exception
+
+Meters are looked up once per template and kept, queries only pay for recording. Every query is recorded exactly
+once, on the result or failure the caller sees: a result arriving after the query timed out is not counted again.
+ */
+@ApplicationScoped
+public class QueryMetrics {
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, TemplateMeters> meters = new ConcurrentHashMap<>();
+
+    void recordSuccess(Query query, long elapsedNanos, ResultSetGroup resultSetGroup) {
+        TemplateMeters templateMeters = meters(query);
+        templateMeters.success.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        templateMeters.rows.record(resultSetGroup.getResultSet(0).getRowCount());
+
+        ExecutionStats stats = resultSetGroup.getExecutionStats();
+        if (stats != null) {
+            templateMeters.brokerTime.record(stats.getTimeUsedMs(), TimeUnit.MILLISECONDS);
+            templateMeters.docsScanned.record(stats.getNumDocsScanned());
+        }
+    }
+
+    void recordFailure(Query query, String broker, long elapsedNanos, Throwable failure) {
+        meters(query).failure.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("pinot.query.errors")
+                .description("Pinot queries that failed or timed out")
+                .tags(tags(query))
+                .tag("broker", broker)
+                .tag("exception", failure.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private TemplateMeters meters(Query query) {
+        return meters.computeIfAbsent(query.template(), template -> new TemplateMeters(registry, tags(query)));
+    }
+
+    private static Tags tags(Query query) {
+        return Tags.of("endpoint", query.endpoint(), "query", query.template());
+    }
+
+    private static class TemplateMeters {
+        private final Timer success;
+        private final Timer failure;
+        private final Timer brokerTime;
+        private final DistributionSummary rows;
+        private final DistributionSummary docsScanned;
+
+        private TemplateMeters(MeterRegistry registry, Tags tags) {
+            success = queryTimer(registry, tags, "success");
+            failure = queryTimer(registry, tags, "failure");
+            brokerTime = Timer.builder("pinot.query.broker.time")
+                    .description("Time the broker reported spending on the query")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            rows = DistributionSummary.builder("pinot.query.rows")
+                    .description("Rows returned by the query")
+                    .tags(tags)
+                    .register(registry);
+            docsScanned = DistributionSummary.builder("pinot.query.docs.scanned")
+                    .description("Documents the broker reported scanning")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        private static Timer queryTimer(MeterRegistry registry, Tags tags, String outcome) {
+            return Timer.builder("pinot.query")
+                    .description("Time from sending a Pinot query until its result or failure")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package pizzashop.pinot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+SQL rendered once, with named parameters written as :name. Binding only concatenates the pre-split SQL fragments with
+the escaped parameter values, so the hot path neither builds a jOOQ query nor renders one. Strings are escaped the same
+way Pinot's PreparedStatement does it, by doubling single quotes, and bound into quoted literals.
+
+Parameters inside quoted literals are left alone, so e.g. 'yyyy-MM-dd HH:mm:ss' is not mistaken for a :mm parameter.
+
+Names are written endpoint.query, or just endpoint for endpoints sending a single query, and are the tags of the
+Pinot query metrics.
+ */
+public final class QueryTemplate {
+
+    private final String name;
+    private final String endpoint;
+    private final String sql;
+    private final List<String> fragments = new ArrayList<>();
+    private final List<String> parameters = new ArrayList<>();
+
+    private QueryTemplate(String name, String sql) {
+        this.name = name;
+        int separator = name.indexOf('.');
+        this.endpoint = separator < 0 ? name : name.substring(0, separator);
+        this.sql = sql;
+        parse(sql);
+    }
+
+    public static QueryTemplate of(String name, String sql) {
+        return new QueryTemplate(name, sql);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    public Query bind() {
+        return bind(Map.of());
+    }
+
+    public Query bind(String parameter, Object value) {
+        return bind(Map.of(parameter, value));
+    }
+
+    public Query bind(Map<String, ?> values) {
+        if (parameters.isEmpty()) {
+            return new Query(endpoint, name, sql);
+        }
+
+        StringBuilder bound = new StringBuilder(sql.length() + 16 * parameters.size());
+        for (int index = 0; index < parameters.size(); index++) {
+            String parameter = parameters.get(index);
+            if (!values.containsKey(parameter)) {
+                throw new IllegalArgumentException("No value bound for :" + parameter + " in query " + name);
+            }
+            bound.append(fragments.get(index));
+            appendLiteral(bound, values.get(parameter));
+        }
+        return new Query(endpoint, name, bound.append(fragments.get(parameters.size())).toString());
+    }
+
+    private static void appendLiteral(StringBuilder bound, Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            bound.append(value);
+        } else if (value instanceof Double number && Double.isFinite(number)) {
+            bound.append(number);
+        } else if (value instanceof String string) {
+            bound.append('\'');
+            for (int index = 0; index < string.length(); index++) {
+                char c = string.charAt(index);
+                if (c == '\'') {
+                    bound.append('\'');
+                }
+                bound.append(c);
+            }
+            bound.append('\'');
+        } else {
+            throw new IllegalArgumentException("Unsupported query parameter value: " + value);
+        }
+    }
+
+    private void parse(String sql) {
+        int fragmentStart = 0;
+        boolean quoted = false;
+        for (int index = 0; index < sql.length(); index++) {
+            char c = sql.charAt(index);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted && index + 1 < sql.length()
+                    && Character.isJavaIdentifierStart(sql.charAt(index + 1))) {
+                int end = index + 1;
+                while (end < sql.length() && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                fragments.add(sql.substring(fragmentStart, index));
+                parameters.add(sql.substring(index + 1, end));
+                fragmentStart = end;
+                index = end - 1;
+            }
+        }
+        fragments.add(sql.substring(fragmentStart));
+    }
+}
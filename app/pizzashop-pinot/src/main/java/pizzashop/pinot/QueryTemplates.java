@@ -0,0 +1,203 @@
+package pizzashop.pinot;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import static org.jooq.impl.DSL.*;
+
+/*
+Every query the resources send to Pinot, rendered once when the class is loaded. Request values are never spliced
+into the SQL here: they are written as :name parameters and bound per request by QueryTemplate.
+ */
+public final class QueryTemplates {
+
+    private static final DSLContext SQL = DSL.using(SQLDialect.POSTGRES);
+
+    public static final QueryTemplate OVERVIEW_TOTAL = QueryTemplate.of("overview.total",
+            "select count(*) from orders limit 10");
+
+    public static final QueryTemplate OVERVIEW_SUMMARY = QueryTemplate.of("overview.summary", SQL
+            .select(
+                    count()
+                            .filterWhere("ts > ago('PT1M')")
+                            .as("events1Min"),
+
+                    count()
+                            .filterWhere("ts <= ago('PT1M') AND ts > ago('PT2M')")
+                            .as("events1Min2Min"),
+
+                    sum(field("price").coerce(Long.class))
+                            .filterWhere("ts > ago('PT1M')")
+                            .as("total1Min"),
+
+                    sum(field("price").coerce(Long.class))
+                            .filterWhere("ts <= ago('PT1M') AND ts > ago('PT2M')")
+                            .as("total1Min2Min")
+
+            ).from("orders")
+            .getSQL());
+
+    public static final QueryTemplate ORDERS_PER_MINUTE_CLOSED = QueryTemplate.of("ordersPerMinute.closed", SQL
+            .select(
+                    field("ToDateTime(DATETRUNC('MINUTE', ts), 'yyyy-MM-dd HH:mm:ss')")
+                            .as("dateMin"),
+                    count(field("*")),
+                    sum(field("price").coerce(Long.class))
+            )
+            .from("orders")
+            .where(field("ts").greaterOrEqual(field(":from")))
+            .and(field("ts").lessThan(field(":to")))
+            .groupBy(field("dateMin"))
+            .orderBy(field("dateMin"))
+            .limit(DSL.inline(60))
+            .getSQL());
+
+    public static final QueryTemplate ORDERS_PER_MINUTE_OPEN = QueryTemplate.of("ordersPerMinute.open", SQL
+            .select(
+                    field("ToDateTime(DATETRUNC('MINUTE', ts), 'yyyy-MM-dd HH:mm:ss')")
+                            .as("dateMin"),
+                    count(field("*")),
+                    sum(field("price").coerce(Long.class))
+            )
+            .from("orders")
+            .where(field("ts").greaterOrEqual(field(":from")))
+            .groupBy(field("dateMin"))
+            .orderBy(field("dateMin"))
+            .limit(DSL.inline(60))
+            .getSQL());
+
+    public static final QueryTemplate POPULAR_ITEMS = QueryTemplate.of("popular.items", SQL
+            .select(
+                    field("product.name").as("product"),
+                    field("product.image").as("image"),
+                    field("distinctcount(orderId)").as("orders"),
+                    sum(field("orderItem.quantity").coerce(Long.class)).as("quantity")
+            )
+            .from("order_items_enriched")
+            .where(field("ts").greaterThan(field("ago('PT1M')")))
+            .groupBy(field("product"), field("image"))
+            .orderBy(field("count(*)").desc())
+            .limit(DSL.inline(5))
+            .getSQL());
+
+    public static final QueryTemplate POPULAR_CATEGORIES = QueryTemplate.of("popular.categories", SQL
+            .select(
+                    field("product.category").as("category"),
+                    field("distinctcount(orderId)").as("orders"),
+                    sum(field("orderItem.quantity").coerce(Long.class)).as("quantity")
+            )
+            .from("order_items_enriched")
+            .where(field("ts").greaterThan(field("ago('PT1M')")))
+            .groupBy(field("category"))
+            .orderBy(field("count(*)").desc())
+            .limit(DSL.inline(5))
+            .getSQL());
+
+    public static final QueryTemplate ORDER_USER = QueryTemplate.of("order.user", SQL
+            .select(field("userId"))
+            .from("orders")
+            .where(field("id").eq(field(":orderId")))
+            .getSQL());
+
+    public static final QueryTemplate ORDER_PRODUCTS = QueryTemplate.of("order.products", SQL
+            .select(
+                    field("product.name").as("product"),
+                    field("product.price").as("price"),
+                    field("product.image").as("image"),
+                    field("orderItem.quantity").as("quantity")
+            )
+            .from("order_items_enriched")
+            .where(field("orderId").eq(field(":orderId")))
+            .getSQL());
+
+    public static final QueryTemplate ORDER_STATUSES = QueryTemplate.of("order.statuses", SQL
+            .select(
+                    field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts"),
+                    field("status"),
+                    field("userId").as("image")
+            )
+            .from("orders_enriched")
+            .where(field("id").eq(field(":orderId")))
+            .orderBy(field("ts").desc())
+            .option("option(skipUpsert=true)")
+            .getSQL());
+
+    public static final QueryTemplate ORDER_DELIVERY_STATUS = QueryTemplate.of("order.deliveryStatus", SQL
+            .select(
+                    field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts"),
+                    field("deliveryLat"),
+                    field("deliveryLon")
+            )
+            .from("delivery_statuses")
+            .where(field("id").eq(field(":orderId")))
+            .getSQL());
+
+    public static final QueryTemplate DELAYED = QueryTemplate.of("delayed", SQL
+            .select(
+                    field("ts"),
+                    field("id"),
+                    field("deliveryLat"),
+                    field("deliveryLon")
+            )
+            .from("delivery_statuses")
+            .where(field("status").eq(field("'" + "IN_TRANSIT" + "'")))
+            .and(field("ST_Contains(ST_GeomFromText(:area), toGeometry(location)) = 1")
+                    .coerce(Boolean.class))
+            .orderBy(field("ts"))
+            .getSQL());
+
+    public static final QueryTemplate STATUSES = QueryTemplate.of("statuses", SQL
+            .select(
+                    field("status"),
+                    min(field("(now() - ts) / 1000")),
+                    field("percentile((now() - ts) / 1000, 50)"),
+                    avg(field("(now() - ts) / 1000").coerce(Long.class)),
+                    field("percentile((now() - ts) / 1000, 75)"),
+                    field("percentile((now() - ts) / 1000, 90)"),
+                    field("percentile((now() - ts) / 1000, 99)"),
+                    max(field("(now() - ts) / 1000"))
+            )
+            .from("orders_enriched")
+            .where(field("status NOT IN ('DELIVERED', 'OUT_FOR_DELIVERY')").coerce(Boolean.class))
+            .groupBy(field("status"))
+            .getSQL());
+
+    public static final QueryTemplate STUCK_ORDERS = QueryTemplate.of("stuckOrders", SQL
+            .select(
+                    field("id"),
+                    field("price"),
+                    field("ts"),
+                    field("(now() - ts) / 1000")
+            )
+            .from("orders_enriched")
+            .where(field("status").eq(field(":orderStatus")))
+            .and(field("(now() - ts) > :stuckTimeInMillis").coerce(Boolean.class))
+            .orderBy(field("ts"))
+            .getSQL());
+
+    public static final QueryTemplate USER_ORDERS = QueryTemplate.of("userOrders", SQL
+            .select(
+                    field("id"),
+                    field("price"),
+                    field("ToDateTime(ts, 'YYYY-MM-dd HH:mm:ss')").as("ts")
+            )
+            .from("orders_enriched")
+            .where(field("userId").eq(field(":userId")))
+            .orderBy(field("ts").desc())
+            .limit(DSL.inline(50))
+            .getSQL());
+
+    public static final QueryTemplate ALL_USERS = QueryTemplate.of("allUsers", SQL
+            .select(
+                    field("userId"),
+                    field("ts")
+            )
+            .from("orders")
+            .orderBy(field("ts").desc())
+            .limit(DSL.inline(50))
+            .getSQL());
+
+    private QueryTemplates() {
+    }
+}
@@ -0,0 +1,125 @@
+package pizzashop;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DashboardFeedTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DashboardFeed feed;
+
+    @BeforeEach
+    public void setUp() {
+        feed = new DashboardFeed();
+        feed.objectMapper = objectMapper;
+        feed.snapshotEvery = 3;
+    }
+
+    @Test
+    public void sendsASnapshotThenTheSectionsThatChanged() throws Exception {
+        DashboardFeed.Tick first = feed.tick(summaries(1, 1, 1));
+        DashboardFeed.Tick second = feed.tick(summaries(2, 1, 1));
+        DashboardFeed.Tick third = feed.tick(summaries(2, 1, 3));
+
+        assertEquals(0, first.sequence());
+        assertEquals(1, second.sequence());
+        assertEquals(2, third.sequence());
+
+        JsonNode snapshot = objectMapper.readTree(first.event());
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(1, snapshot.get(DashboardFeed.OVERVIEW).asInt());
+        assertTrue(snapshot.has(DashboardFeed.ORDERS_PER_MINUTE));
+        assertTrue(snapshot.has(DashboardFeed.POPULAR));
+
+        JsonNode delta = objectMapper.readTree(second.event());
+        assertEquals("delta", delta.get("type").asText());
+        assertEquals(2, delta.get(DashboardFeed.OVERVIEW).asInt());
+        assertEquals(2, delta.size());
+
+        delta = objectMapper.readTree(third.event());
+        assertEquals(List.of("type", DashboardFeed.POPULAR), fieldNames(delta));
+    }
+
+    @Test
+    public void sendsNothingWhenNothingChanged() {
+        feed.tick(summaries(1, 1, 1));
+
+        assertNull(feed.tick(summaries(1, 1, 1)).event());
+    }
+
+    @Test
+    public void sendsASnapshotEverySnapshotEveryTicks() throws Exception {
+        feed.tick(summaries(1, 1, 1));
+        feed.tick(summaries(2, 1, 1));
+        feed.tick(summaries(3, 1, 1));
+
+        DashboardFeed.Tick periodic = feed.tick(summaries(3, 1, 1));
+
+        assertEquals(3, periodic.sequence());
+        JsonNode snapshot = objectMapper.readTree(periodic.event());
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(3, snapshot.get(DashboardFeed.OVERVIEW).asInt());
+    }
+
+    @Test
+    public void startsSubscribersFromASnapshot() throws Exception {
+        feed.tick(summaries(1, 1, 1));
+        DashboardFeed.Tick start = feed.tick(summaries(2, 1, 1));
+        DashboardFeed.Subscription subscription = feed.new Subscription();
+
+        JsonNode first = objectMapper.readTree(subscription.next(start).orElseThrow());
+        assertEquals("snapshot", first.get("type").asText());
+        assertEquals(2, first.get(DashboardFeed.OVERVIEW).asInt());
+
+        // the tick it started at, also received from the live ticks
+        assertFalse(subscription.next(start).isPresent());
+
+        DashboardFeed.Tick next = feed.tick(summaries(3, 1, 1));
+        assertEquals(next.event(), subscription.next(next).orElseThrow());
+    }
+
+    @Test
+    public void resendsASnapshotAfterAMissedTick() throws Exception {
+        feed.snapshotEvery = 30;
+        DashboardFeed.Subscription subscription = feed.new Subscription();
+        subscription.next(feed.tick(summaries(1, 1, 1)));
+        feed.tick(summaries(1, 2, 1));
+
+        DashboardFeed.Tick afterGap = feed.tick(summaries(1, 2, 3));
+        Optional<String> event = subscription.next(afterGap);
+
+        // the delta of afterGap only carries popular, the snapshot also brings the dropped ordersPerMinute change
+        JsonNode snapshot = objectMapper.readTree(event.orElseThrow());
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(2, snapshot.get(DashboardFeed.ORDERS_PER_MINUTE).asInt());
+        assertEquals(3, snapshot.get(DashboardFeed.POPULAR).asInt());
+
+        DashboardFeed.Tick unchanged = feed.tick(summaries(1, 2, 3));
+        assertFalse(subscription.next(unchanged).isPresent());
+    }
+
+    private ObjectNode summaries(int overview, int ordersPerMinute, int popular) {
+        ObjectNode summaries = objectMapper.createObjectNode();
+        summaries.put(DashboardFeed.OVERVIEW, overview);
+        summaries.put(DashboardFeed.ORDERS_PER_MINUTE, ordersPerMinute);
+        summaries.put(DashboardFeed.POPULAR, popular);
+        return summaries;
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
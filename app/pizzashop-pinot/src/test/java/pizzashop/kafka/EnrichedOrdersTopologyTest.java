@@ -0,0 +1,217 @@
+package pizzashop.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.kafka.geo.DeliveryIndex;
+import pizzashop.kafka.model.EnrichedOrder;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.serde.JsonDeserializer;
+import pizzashop.kafka.serde.JsonSerializer;
+import pizzashop.kafka.status.OrderStatusTracker;
+import pizzashop.models.Order;
+import pizzashop.models.OrderItem;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EnrichedOrdersTopologyTest {
+    private static final Instant START = Instant.parse("2022-10-17T13:30:00Z");
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Order> orders;
+    private TestInputTopic<String, OrderStatus> statuses;
+    private TestOutputTopic<String, EnrichedOrder> enrichedOrders;
+
+    @BeforeEach
+    public void setUp() {
+        EnrichedOrdersTopology topology = new EnrichedOrdersTopology();
+        topology.deliveryIndex = new DeliveryIndex();
+        topology.registry = new SimpleMeterRegistry();
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "enriched-orders-test");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(topology.buildTopology(), props, START);
+
+        orders = driver.createInputTopic("orders", new StringSerializer(), new JsonSerializer<>());
+        statuses = driver.createInputTopic("ordersStatuses", new StringSerializer(), new JsonSerializer<>());
+        enrichedOrders = driver.createOutputTopic("enriched-orders", new StringDeserializer(),
+                new JsonDeserializer<>(EnrichedOrder.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    public void appliesStatusesThatArriveBeforeTheirOrder() {
+        statuses.pipeInput("order-1", status("order-1", "PLACED_ORDER", "2022-10-17T13:27:35.739917"), START);
+        statuses.pipeInput("order-1", status("order-1", "ORDER_CONFIRMED", "2022-10-17T13:30:07.739917"),
+                START.plusSeconds(1));
+        assertTrue(enrichedOrders.isEmpty());
+        assertEquals(2, trackedOrders().get("order-1").pendingStatuses.size());
+
+        orders.pipeInput("order-1", order("order-1"), START.plusSeconds(2));
+
+        List<EnrichedOrder> published = enrichedOrders.readValuesToList();
+        assertEquals(List.of("PLACED_ORDER", "ORDER_CONFIRMED"), published.stream().map(o -> o.status).toList());
+        assertEquals("817", published.get(0).userId);
+        assertEquals(4259, published.get(0).price);
+        assertEquals(List.of(OrderStatusTracker.indexKey("ORDER_CONFIRMED",
+                EventTime.parseMicros("2022-10-17T13:30:07.739917"), "order-1")), keys(statusIndex()));
+        assertTrue(trackedOrders().get("order-1").pendingStatuses.isEmpty());
+    }
+
+    @Test
+    public void doesNotMoveOrdersBackOnOlderStatuses() {
+        orders.pipeInput("order-1", order("order-1"), START);
+        statuses.pipeInput("order-1", status("order-1", "BEING_COOKED", "2022-10-17T13:30:30.739917"), START);
+        statuses.pipeInput("order-1", status("order-1", "BEING_PREPARED", "2022-10-17T13:30:20.739917"),
+                START.plusSeconds(1));
+
+        // the late status is still published, Pinot keeps the row with the latest createdAt
+        assertEquals(List.of("BEING_COOKED", "BEING_PREPARED"),
+                enrichedOrders.readValuesToList().stream().map(o -> o.status).toList());
+        long cookedAt = EventTime.parseMicros("2022-10-17T13:30:30.739917");
+        assertEquals("BEING_COOKED", trackedOrders().get("order-1").status);
+        assertEquals(List.of(OrderStatusTracker.indexKey("BEING_COOKED", cookedAt, "order-1")), keys(statusIndex()));
+        assertEquals(List.of(OrderStatusTracker.countKey("BEING_COOKED", cookedAt)), keys(statusCounts()));
+    }
+
+    @Test
+    public void sendsTheItemsWithTheFirstStatusOnly() {
+        orders.pipeInput("order-1", order("order-1"), START);
+        statuses.pipeInput("order-1", status("order-1", "PLACED_ORDER", "2022-10-17T13:27:35.739917"), START);
+        statuses.pipeInput("order-1", status("order-1", "ORDER_CONFIRMED", "2022-10-17T13:30:07.739917"), START);
+        statuses.pipeInput("order-1", status("order-1", "BEING_PREPARED", "2022-10-17T13:30:20.739917"), START);
+
+        List<EnrichedOrder> published = enrichedOrders.readValuesToList();
+        assertEquals(3, published.size());
+        assertNotNull(published.get(0).items);
+        assertEquals("21", published.get(0).items.get(0).productId);
+        assertNull(published.get(1).items);
+        assertNull(published.get(2).items);
+    }
+
+    @Test
+    public void countsOrdersPerStatusAndSecondEntered() {
+        orders.pipeInput("order-1", order("order-1"), START);
+        orders.pipeInput("order-2", order("order-2"), START);
+        statuses.pipeInput("order-1", status("order-1", "PLACED_ORDER", "2022-10-17T13:27:35.100000"), START);
+        statuses.pipeInput("order-2", status("order-2", "PLACED_ORDER", "2022-10-17T13:27:35.900000"), START);
+
+        String placed = OrderStatusTracker.countKey("PLACED_ORDER", EventTime.parseMicros("2022-10-17T13:27:35"));
+        assertEquals(2, statusCounts().get(placed));
+
+        statuses.pipeInput("order-1", status("order-1", "ORDER_CONFIRMED", "2022-10-17T13:30:07.739917"), START);
+        String confirmed = OrderStatusTracker.countKey("ORDER_CONFIRMED",
+                EventTime.parseMicros("2022-10-17T13:30:07"));
+        assertEquals(1, statusCounts().get(placed));
+        assertEquals(1, statusCounts().get(confirmed));
+
+        // the key is dropped once no order is left in the status
+        statuses.pipeInput("order-2", status("order-2", "ORDER_CONFIRMED", "2022-10-17T13:30:07.200000"), START);
+        assertNull(statusCounts().get(placed));
+        assertEquals(2, statusCounts().get(confirmed));
+        assertEquals(2, keys(statusIndex()).size());
+    }
+
+    @Test
+    public void purgesOrdersOnceTheyExpire() {
+        orders.pipeInput("delivered", order("delivered"), START);
+        statuses.pipeInput("delivered", status("delivered", "DELIVERED", "2022-10-17T13:30:00"), START);
+        orders.pipeInput("open", order("open"), START);
+        statuses.pipeInput("open", status("open", "ORDER_CONFIRMED", "2022-10-17T13:30:00"), START);
+        // a status whose order never shows up
+        statuses.pipeInput("orphan", status("orphan", "PLACED_ORDER", "2022-10-17T13:30:00"), START);
+
+        // stream time only moves with the records, any order advances it
+        orders.pipeInput("later", order("later"), START.plus(Duration.ofMinutes(59)));
+        assertNotNull(trackedOrders().get("delivered"));
+
+        orders.pipeInput("later", order("later"), START.plus(Duration.ofMinutes(61)));
+        assertNull(trackedOrders().get("delivered"));
+        assertNotNull(trackedOrders().get("open"));
+        assertEquals(List.of(OrderStatusTracker.indexKey("ORDER_CONFIRMED",
+                EventTime.parseMicros("2022-10-17T13:30:00"), "open")), keys(statusIndex()));
+        assertEquals(List.of(OrderStatusTracker.countKey("ORDER_CONFIRMED",
+                EventTime.parseMicros("2022-10-17T13:30:00"))), keys(statusCounts()));
+
+        // open orders expire after six hours without any update
+        orders.pipeInput("later", order("later"), START.plus(Duration.ofHours(6)).plusSeconds(61));
+        assertNull(trackedOrders().get("open"));
+        assertNull(trackedOrders().get("orphan"));
+        assertEquals(List.of("later"), keys(trackedOrders()));
+        assertEquals(List.of(), keys(statusIndex()));
+        assertEquals(List.of(), keys(statusCounts()));
+        assertEquals(1, keys(driver.getKeyValueStore(OrderStatusTracker.EXPIRY_INDEX_STORE)).size());
+    }
+
+    private KeyValueStore<String, TrackedOrder> trackedOrders() {
+        return driver.getKeyValueStore(OrderStatusTracker.STORE);
+    }
+
+    private KeyValueStore<String, OrderStatusEntry> statusIndex() {
+        return driver.getKeyValueStore(OrderStatusTracker.STATUS_INDEX_STORE);
+    }
+
+    private KeyValueStore<String, Long> statusCounts() {
+        return driver.getKeyValueStore(OrderStatusTracker.STATUS_COUNTS_STORE);
+    }
+
+    private static List<String> keys(KeyValueStore<String, ?> store) {
+        List<String> keys = new ArrayList<>();
+        try (KeyValueIterator<String, ?> all = store.all()) {
+            all.forEachRemaining(entry -> keys.add(entry.key));
+        }
+        return keys;
+    }
+
+    private static Order order(String id) {
+        OrderItem item = new OrderItem();
+        item.productId = "21";
+        item.quantity = 2;
+        item.price = 45;
+        Order order = new Order();
+        order.id = id;
+        order.userId = "817";
+        order.createdAt = "2022-10-17T13:27:35.739917";
+        order.price = 4259;
+        order.items = List.of(item);
+        return order;
+    }
+
+    private static OrderStatus status(String id, String status, String updatedAt) {
+        OrderStatus orderStatus = new OrderStatus();
+        orderStatus.id = id;
+        orderStatus.status = status;
+        orderStatus.updatedAt = updatedAt;
+        return orderStatus;
+    }
+}
@@ -0,0 +1,123 @@
+package pizzashop.kafka.catalog;
+
+import org.junit.jupiter.api.Test;
+import pizzashop.models.Product;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ProductCatalogTest {
+
+    @Test
+    public void keepsNumericIdsInTheArray() {
+        ProductCatalog catalog = new ProductCatalog();
+        Product margherita = product("7");
+
+        catalog.put("7", margherita);
+
+        assertSame(margherita, catalog.get("7"));
+        assertNull(catalog.get("8"));
+        assertNull(catalog.get("1000"));
+    }
+
+    @Test
+    public void growsTheArrayForLargerIds() {
+        ProductCatalog catalog = new ProductCatalog();
+        Product small = product("3");
+        Product large = product("300");
+        Product largest = product("999999");
+        catalog.put("3", small);
+
+        catalog.put("300", large);
+        catalog.put("999999", largest);
+
+        assertSame(small, catalog.get("3"));
+        assertSame(large, catalog.get("300"));
+        assertSame(largest, catalog.get("999999"));
+    }
+
+    @Test
+    public void removesProductsOnTombstones() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.put("7", product("7"));
+        catalog.put("diavola", product("diavola"));
+
+        catalog.put("7", null);
+        catalog.put("diavola", null);
+        // beyond the array, nothing to remove
+        catalog.put("500000", null);
+
+        assertNull(catalog.get("7"));
+        assertNull(catalog.get("diavola"));
+        assertNull(catalog.get("500000"));
+    }
+
+    @Test
+    public void keepsOtherIdsInTheMap() {
+        ProductCatalog catalog = new ProductCatalog();
+        Product named = product("diavola");
+        Product tooLarge = product("1048576");
+        Product tooLong = product("00000001");
+        Product negative = product("-1");
+
+        catalog.put("diavola", named);
+        catalog.put("1048576", tooLarge);
+        catalog.put("00000001", tooLong);
+        catalog.put("-1", negative);
+
+        assertSame(named, catalog.get("diavola"));
+        assertSame(tooLarge, catalog.get("1048576"));
+        assertSame(tooLong, catalog.get("00000001"));
+        assertSame(negative, catalog.get("-1"));
+        assertNull(catalog.get("1"));
+        assertNull(catalog.get(null));
+        assertNull(catalog.get(""));
+    }
+
+    @Test
+    public void readersSeeEveryProductPublishedWhileTheArrayGrows() throws InterruptedException {
+        ProductCatalog catalog = new ProductCatalog();
+        int products = 200_000;
+        AtomicInteger published = new AtomicInteger(-1);
+        AtomicReference<String> missing = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (published.get() < products - 1 && missing.get() == null) {
+                int last = published.get();
+                if (last < 0) {
+                    continue;
+                }
+                int earlier = ThreadLocalRandom.current().nextInt(last + 1);
+                for (int id : new int[]{last, earlier}) {
+                    Product product = catalog.get(String.valueOf(id));
+                    if (product == null || !product.id.equals(String.valueOf(id))) {
+                        missing.set(String.valueOf(id));
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int id = 0; id < products; id++) {
+            catalog.put(String.valueOf(id), product(String.valueOf(id)));
+            published.set(id);
+        }
+        reader.join();
+
+        assertNull(missing.get());
+        assertEquals("199999", catalog.get("199999").id);
+    }
+
+    private static Product product(String id) {
+        Product product = new Product();
+        product.id = id;
+        product.name = "Product " + id;
+        product.category = "pizza";
+        product.price = 10;
+        return product;
+    }
+}
@@ -0,0 +1,88 @@
+package pizzashop.kafka.geo;
+
+import org.junit.jupiter.api.Test;
+import pizzashop.kafka.model.DeliveryStatus;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeliveryIndexTest {
+    // x is the longitude, y the latitude
+    private static final Polygon BANGALORE =
+            Polygon.parseWkt("POLYGON((77.55 12.95, 77.65 12.95, 77.65 13.05, 77.55 13.05, 77.55 12.95))");
+    // covers far more than MAX_CELLS cells
+    private static final Polygon INDIA = Polygon.parseWkt("POLYGON((68 6, 98 6, 98 36, 68 36, 68 6))");
+    private static final Polygon WORLD = Polygon.parseWkt("POLYGON((-180 -90, 180 -90, 180 90, -180 90, -180 -90))");
+
+    @Test
+    public void findsOrdersInTransitWithinThePolygon() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.update("inside", inTransit("2022-10-17T13:30:02", 12.978, 77.59));
+        index.update("older", inTransit("2022-10-17T13:30:01", 13.0, 77.6));
+        index.update("outside", inTransit("2022-10-17T13:30:00", 12.9, 77.59));
+
+        assertEquals(List.of("older", "inside"), ids(index.within(BANGALORE)));
+    }
+
+    @Test
+    public void movesOrdersBetweenCells() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.update("order-1", inTransit("2022-10-17T13:30:00", 12.9, 77.59));
+        assertEquals(List.of(), ids(index.within(BANGALORE)));
+
+        index.update("order-1", inTransit("2022-10-17T13:31:00", 12.978, 77.59));
+        assertEquals(List.of("order-1"), ids(index.within(BANGALORE)));
+
+        index.update("order-1", inTransit("2022-10-17T13:32:00", 12.9, 77.59));
+        assertEquals(List.of(), ids(index.within(BANGALORE)));
+    }
+
+    @Test
+    public void dropsOrdersNoLongerInTransit() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.update("delivered", inTransit("2022-10-17T13:30:00", 12.978, 77.59));
+        index.update("deleted", inTransit("2022-10-17T13:30:00", 12.979, 77.59));
+        DeliveryStatus delivered = inTransit("2022-10-17T13:35:00", 12.978, 77.59);
+        delivered.status = "DELIVERED";
+
+        index.update("delivered", delivered);
+        index.update("deleted", null);
+
+        assertEquals(List.of(), ids(index.within(BANGALORE)));
+        assertEquals(List.of(), ids(index.within(INDIA)));
+    }
+
+    @Test
+    public void scansEveryPositionAboveMaxCells() {
+        DeliveryIndex index = new DeliveryIndex();
+        index.update("bangalore", inTransit("2022-10-17T13:30:00", 12.978, 77.59));
+        index.update("delhi", inTransit("2022-10-17T13:30:01", 28.61, 77.21));
+        index.update("london", inTransit("2022-10-17T13:30:02", 51.5, -0.12));
+
+        long indiaCells = (long) (GeoCells.x(98) - GeoCells.x(68) + 1) * (GeoCells.y(36) - GeoCells.y(6) + 1);
+        assertTrue(indiaCells > DeliveryIndex.MAX_CELLS);
+        assertEquals(List.of("bangalore", "delhi"), ids(index.within(INDIA)));
+
+        // walking the 2^30 cells of the world would take seconds, the scan only tests the three positions
+        List<DeliveryPosition> everywhere = assertTimeoutPreemptively(Duration.ofSeconds(2),
+                () -> index.within(WORLD));
+        assertEquals(List.of("bangalore", "delhi", "london"), ids(everywhere));
+    }
+
+    private static DeliveryStatus inTransit(String updatedAt, double lat, double lon) {
+        DeliveryStatus status = new DeliveryStatus();
+        status.updatedAt = updatedAt;
+        status.deliveryLat = lat;
+        status.deliveryLon = lon;
+        status.status = DeliveryIndex.IN_TRANSIT;
+        return status;
+    }
+
+    private static List<String> ids(List<DeliveryPosition> positions) {
+        return positions.stream().map(position -> position.id).toList();
+    }
+}
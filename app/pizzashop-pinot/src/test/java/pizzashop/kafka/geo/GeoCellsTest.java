@@ -0,0 +1,47 @@
+package pizzashop.kafka.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GeoCellsTest {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    @Test
+    public void matchesTheGeohashOfThePoint() {
+        assertEquals("u4pruy", geohash(GeoCells.cell(57.64911, 10.40744)));
+        assertEquals("tdr1vd", geohash(GeoCells.cell(12.978, 77.59)));
+        assertEquals("s00000", geohash(GeoCells.cell(0d, 0d)));
+    }
+
+    @Test
+    public void putsNeighbouringColumnsInNeighbouringCells() {
+        int x = GeoCells.x(77.59);
+        int y = GeoCells.y(12.978);
+
+        assertEquals(GeoCells.cell(12.978, 77.59), GeoCells.cell(x, y));
+        assertEquals(x + 1, GeoCells.x(77.59 + 360d / GeoCells.DIVISIONS));
+        assertEquals(y + 1, GeoCells.y(12.978 + 180d / GeoCells.DIVISIONS));
+    }
+
+    @Test
+    public void clampsTheEdgesOfTheMap() {
+        assertEquals(0, GeoCells.x(-180));
+        assertEquals(GeoCells.DIVISIONS - 1, GeoCells.x(180));
+        assertEquals(GeoCells.DIVISIONS - 1, GeoCells.x(200));
+        assertEquals(0, GeoCells.y(-90));
+        assertEquals(0, GeoCells.y(-95));
+        assertEquals(GeoCells.DIVISIONS - 1, GeoCells.y(90));
+        assertEquals("zzzzzz", geohash(GeoCells.cell(90d, 180d)));
+        assertEquals("000000", geohash(GeoCells.cell(-90d, -180d)));
+    }
+
+    /* The 30 bits of a cell, five at a time from the most significant one */
+    private static String geohash(long cell) {
+        StringBuilder geohash = new StringBuilder();
+        for (int shift = GeoCells.BITS * 2 - 5; shift >= 0; shift -= 5) {
+            geohash.append(BASE32.charAt((int) (cell >>> shift) & 31));
+        }
+        return geohash.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package pizzashop.kafka.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PolygonTest {
+    // x is the longitude, y the latitude
+    private static final String BANGALORE =
+            "POLYGON((77.55 12.95, 77.65 12.95, 77.65 13.05, 77.55 13.05, 77.55 12.95))";
+
+    @Test
+    public void containsPointsInside() {
+        Polygon polygon = Polygon.parseWkt(BANGALORE);
+
+        assertTrue(polygon.contains(12.978, 77.59));
+        assertFalse(polygon.contains(12.9, 77.59));
+        assertFalse(polygon.contains(12.978, 77.7));
+        // swapping the coordinates puts the point elsewhere
+        assertFalse(polygon.contains(77.59, 12.978));
+    }
+
+    @Test
+    public void followsTheEdgesOfConcavePolygons() {
+        Polygon polygon = Polygon.parseWkt("POLYGON((0 0, 10 0, 10 10, 5 5, 0 10, 0 0))");
+
+        assertTrue(polygon.contains(2, 5));
+        assertTrue(polygon.contains(8, 1));
+        assertTrue(polygon.contains(8, 9));
+        assertFalse(polygon.contains(8, 5));
+    }
+
+    @Test
+    public void excludesHoles() {
+        Polygon polygon = Polygon.parseWkt("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (4 4, 6 4, 6 6, 4 6, 4 4))");
+
+        assertTrue(polygon.contains(2, 2));
+        assertFalse(polygon.contains(5, 5));
+        assertTrue(polygon.contains(5, 8));
+    }
+
+    @Test
+    public void ignoresCaseAndWhitespace() {
+        Polygon polygon = Polygon.parseWkt("  polygon ( (0 0,10 0 ,  10\t10, 0 10, 0 0) )  ");
+
+        assertTrue(polygon.contains(5, 5));
+        assertFalse(polygon.contains(11, 5));
+    }
+
+    @Test
+    public void exposesItsBoundingBox() {
+        Polygon polygon = Polygon.parseWkt(BANGALORE);
+
+        assertEquals(12.95, polygon.minLat(), 0);
+        assertEquals(13.05, polygon.maxLat(), 0);
+        assertEquals(77.55, polygon.minLon(), 0);
+        assertEquals(77.65, polygon.maxLon(), 0);
+    }
+
+    @Test
+    public void rejectsOtherGeometries() {
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POINT(77.59 12.978)"));
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("LINESTRING(0 0, 1 1, 2 2)"));
+    }
+
+    @Test
+    public void rejectsMalformedPolygons() {
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON"));
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON()"));
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON((0 0, 1 0, 1 1)"));
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON((0 0, 1, 1 1, 0 0))"));
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON((0 0, a 0, 1 1, 0 0))"));
+    }
+
+    @Test
+    public void rejectsRingsWithFewerThanThreePoints() {
+        assertThrows(IllegalArgumentException.class, () -> Polygon.parseWkt("POLYGON((0 0, 1 1))"));
+    }
+}
@@ -0,0 +1,248 @@
+package pizzashop.kafka.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serde;
+import org.junit.jupiter.api.Test;
+import pizzashop.kafka.model.HydratedOrderItem;
+import pizzashop.kafka.model.OrderItemWithContext;
+import pizzashop.kafka.model.OrderStatus;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.popular.PopularitySketch;
+import pizzashop.kafka.sketch.LatencyHistogram;
+import pizzashop.kafka.sketch.SpaceSaving;
+import pizzashop.models.Order;
+import pizzashop.models.OrderItem;
+import pizzashop.models.Product;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BinarySerdesTest {
+    private static final String TOPIC = "test";
+
+    @Test
+    public void roundTripsOrders() {
+        Order order = order();
+
+        Order read = roundTrip(BinarySerdes.Order(), order);
+
+        assertOrderEquals(order, read);
+    }
+
+    @Test
+    public void roundTripsOrderItemsWithContext() {
+        OrderItemWithContext item = new OrderItemWithContext("order-1", null, 1_666_013_255_739_917L, orderItem("7"));
+
+        OrderItemWithContext read = roundTrip(BinarySerdes.OrderItemWithContext(), item);
+
+        assertEquals(item.orderId, read.orderId);
+        assertNull(read.createdAt);
+        assertEquals(item.createdAtMicros, read.createdAtMicros);
+        assertOrderItemEquals(item.orderItem, read.orderItem);
+        assertNull(roundTrip(BinarySerdes.OrderItemWithContext(),
+                new OrderItemWithContext("order-1", "2022-10-17T13:27:35.739917", 0, null)).orderItem);
+    }
+
+    @Test
+    public void roundTripsHydratedOrderItems() {
+        Product product = new Product();
+        product.id = "7";
+        product.name = "Margherita";
+        product.description = "Tomato, mozzarella, basil";
+        product.category = "pizza";
+        product.image = "margherita.png";
+        product.price = 12.5;
+        HydratedOrderItem item = new HydratedOrderItem("order-1", "2022-10-17T13:27:35.739917", 0, product,
+                orderItem("7"));
+
+        HydratedOrderItem read = roundTrip(BinarySerdes.HydratedOrderItem(), item);
+
+        assertEquals(item.orderId, read.orderId);
+        assertEquals(item.createdAt, read.createdAt);
+        assertEquals(0L, read.createdAtMicros);
+        assertEquals(product.id, read.product.id);
+        assertEquals(product.name, read.product.name);
+        assertEquals(product.description, read.product.description);
+        assertEquals(product.category, read.product.category);
+        assertEquals(product.image, read.product.image);
+        assertEquals(product.price, read.product.price);
+        assertOrderItemEquals(item.orderItem, read.orderItem);
+    }
+
+    @Test
+    public void roundTripsTrackedOrders() {
+        TrackedOrder tracked = new TrackedOrder();
+        tracked.order = order();
+        tracked.status = "BEING_COOKED";
+        tracked.updatedAtMicros = 1_666_013_420_739_917L;
+        tracked.enteredAt = 1_666_013_400_000_001L;
+        tracked.itemsPublished = true;
+        tracked.expiresAt = 1_666_035_020_739L;
+        tracked.pendingStatuses.add(orderStatus("OUT_FOR_DELIVERY"));
+
+        TrackedOrder read = roundTrip(BinarySerdes.TrackedOrder(), tracked);
+
+        assertOrderEquals(tracked.order, read.order);
+        assertEquals(tracked.status, read.status);
+        assertEquals(tracked.updatedAtMicros, read.updatedAtMicros);
+        assertEquals(tracked.enteredAt, read.enteredAt);
+        assertEquals(tracked.itemsPublished, read.itemsPublished);
+        assertEquals(tracked.expiresAt, read.expiresAt);
+        assertEquals(1, read.pendingStatuses.size());
+        OrderStatus pending = read.pendingStatuses.get(0);
+        assertEquals("order-1", pending.id);
+        assertEquals("OUT_FOR_DELIVERY", pending.status);
+        assertNull(pending.updatedAt);
+        assertEquals(1_666_013_500_000_000L, pending.updatedAtMicros);
+    }
+
+    @Test
+    public void roundTripsTrackedOrdersWaitingForTheirOrder() {
+        TrackedOrder tracked = new TrackedOrder();
+        tracked.pendingStatuses.add(orderStatus("ORDER_CONFIRMED"));
+
+        TrackedOrder read = roundTrip(BinarySerdes.TrackedOrder(), tracked);
+
+        assertNull(read.order);
+        assertNull(read.status);
+        assertEquals(1, read.pendingStatuses.size());
+    }
+
+    @Test
+    public void roundTripsOrderStatusEntries() {
+        OrderStatusEntry entry = new OrderStatusEntry("order-1", 42.5, 1_666_013_400_000_001L);
+
+        OrderStatusEntry read = roundTrip(BinarySerdes.OrderStatusEntry(), entry);
+
+        assertEquals(entry.id, read.id);
+        assertEquals(entry.price, read.price);
+        assertEquals(entry.enteredAt, read.enteredAt);
+    }
+
+    @Test
+    public void roundTripsLatencyHistograms() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value < 10_000_000_000L; value *= 3) {
+            histogram.record(value, value % 7 + 1);
+        }
+
+        LatencyHistogram read = roundTrip(BinarySerdes.LatencyHistogram(), histogram);
+
+        assertArrayEquals(histogram.counts(), read.counts());
+        assertEquals(histogram.totalCount(), read.totalCount());
+        assertEquals(histogram.sum(), read.sum());
+        assertEquals(histogram.min(), read.min());
+        assertEquals(histogram.max(), read.max());
+        assertEquals(histogram.percentile(99), read.percentile(99));
+        assertEquals(0L, roundTrip(BinarySerdes.LatencyHistogram(), new LatencyHistogram()).totalCount());
+    }
+
+    @Test
+    public void roundTripsPopularitySketches() {
+        PopularitySketch sketch = new PopularitySketch();
+        sketch.products().add("Margherita", "margherita.png", 2);
+        sketch.products().add("Margherita", "margherita.png", 1);
+        sketch.products().add("Diavola", "diavola.png", 1);
+        sketch.categories().add("pizza", null, 4);
+        for (int order = 0; order < 100; order++) {
+            sketch.orders().add("order-" + order);
+        }
+
+        PopularitySketch read = roundTrip(BinarySerdes.PopularitySketch(), sketch);
+
+        assertCountersEqual(sketch.products(), read.products());
+        assertCountersEqual(sketch.categories(), read.categories());
+        assertNull(read.categories().top(1).get(0).label());
+        assertArrayEquals(sketch.orders().registers(), read.orders().registers());
+        assertEquals(sketch.orders().estimate(), read.orders().estimate());
+    }
+
+    @Test
+    public void keepsNulls() {
+        Serde<Order> serde = BinarySerdes.Order();
+
+        assertNull(serde.serializer().serialize(TOPIC, null));
+        assertNull(serde.deserializer().deserialize(TOPIC, null));
+    }
+
+    @Test
+    public void rejectsOtherFormatVersions() {
+        Serde<Order> serde = BinarySerdes.Order();
+        byte[] bytes = serde.serializer().serialize(TOPIC, order());
+        bytes[0] = (byte) (BinarySerializer.FORMAT_VERSION + 1);
+
+        assertThrows(SerializationException.class, () -> serde.deserializer().deserialize(TOPIC, bytes));
+    }
+
+    private static <T> T roundTrip(Serde<T> serde, T value) {
+        return serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, value));
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.id = "order-1";
+        order.userId = "817";
+        order.createdAt = null;
+        order.createdAtMicros = 1_666_013_255_739_917L;
+        order.price = 4259;
+        order.deliveryLat = 12.978;
+        order.deliveryLon = 77.59;
+        order.items = List.of(orderItem("7"), orderItem("21"));
+        return order;
+    }
+
+    private static OrderItem orderItem(String productId) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.productId = productId;
+        orderItem.quantity = 300;
+        orderItem.price = 45.5;
+        return orderItem;
+    }
+
+    private static OrderStatus orderStatus(String status) {
+        OrderStatus orderStatus = new OrderStatus();
+        orderStatus.id = "order-1";
+        orderStatus.status = status;
+        orderStatus.updatedAtMicros = 1_666_013_500_000_000L;
+        return orderStatus;
+    }
+
+    private static void assertOrderEquals(Order expected, Order actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.userId, actual.userId);
+        assertEquals(expected.createdAt, actual.createdAt);
+        assertEquals(expected.createdAtMicros, actual.createdAtMicros);
+        assertEquals(expected.price, actual.price);
+        assertEquals(expected.deliveryLat, actual.deliveryLat);
+        assertEquals(expected.deliveryLon, actual.deliveryLon);
+        assertEquals(expected.items.size(), actual.items.size());
+        for (int index = 0; index < expected.items.size(); index++) {
+            assertOrderItemEquals(expected.items.get(index), actual.items.get(index));
+        }
+    }
+
+    private static void assertOrderItemEquals(OrderItem expected, OrderItem actual) {
+        assertEquals(expected.productId, actual.productId);
+        assertEquals(expected.quantity, actual.quantity);
+        assertEquals(expected.price, actual.price);
+    }
+
+    private static void assertCountersEqual(SpaceSaving expected, SpaceSaving actual) {
+        assertEquals(expected.capacity(), actual.capacity());
+        List<SpaceSaving.Counter> expectedTop = expected.top(expected.capacity());
+        List<SpaceSaving.Counter> actualTop = actual.top(actual.capacity());
+        assertEquals(expectedTop.size(), actualTop.size());
+        for (int index = 0; index < expectedTop.size(); index++) {
+            assertEquals(expectedTop.get(index).key(), actualTop.get(index).key());
+            assertEquals(expectedTop.get(index).label(), actualTop.get(index).label());
+            assertEquals(expectedTop.get(index).count(), actualTop.get(index).count());
+            assertEquals(expectedTop.get(index).error(), actualTop.get(index).error());
+            assertEquals(expectedTop.get(index).quantity(), actualTop.get(index).quantity());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package pizzashop.kafka.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimatesZeroWhenEmpty() {
+        assertEquals(0L, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void countsDuplicatesOnce() {
+        HyperLogLog counter = new HyperLogLog();
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (int order = 0; order < 100; order++) {
+                counter.add("order-" + order);
+            }
+        }
+
+        assertEquals(100d, counter.estimate(), 3);
+    }
+
+    @Test
+    public void estimatesLargeCardinalitiesWithinTheStandardError() {
+        HyperLogLog counter = new HyperLogLog();
+        int distinct = 100_000;
+        for (int order = 0; order < distinct; order++) {
+            counter.add("order-" + order);
+        }
+
+        // three standard errors of ~2.3%
+        assertTrue(Math.abs(counter.estimate() - distinct) <= distinct * 0.07, "estimate " + counter.estimate());
+    }
+
+    @Test
+    public void mergesIntoTheCounterOfTheUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int order = 0; order < 5_000; order++) {
+            (order % 3 == 0 ? left : right).add("order-" + order);
+            union.add("order-" + order);
+        }
+        left.add("order-1");
+
+        HyperLogLog merged = left.merge(right);
+
+        assertArrayEquals(union.registers(), merged.registers());
+        assertEquals(union.estimate(), merged.estimate());
+    }
+
+    @Test
+    public void rejectsMismatchedPrecisions() {
+        HyperLogLog counter = new HyperLogLog(11);
+
+        assertThrows(IllegalArgumentException.class, () -> counter.merge(new HyperLogLog(10)));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.of(11, new byte[1 << 10]));
+        assertEquals(10, HyperLogLog.of(10, new byte[1 << 10]).precision());
+    }
+}
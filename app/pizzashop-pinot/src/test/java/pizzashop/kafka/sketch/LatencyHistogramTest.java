@@ -0,0 +1,138 @@
+package pizzashop.kafka.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void givesSmallValuesABucketEach() {
+        for (long value = 0; value < LatencyHistogram.LINEAR_VALUES; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.lowerBound((int) value));
+            assertEquals(1L, LatencyHistogram.bucketWidth((int) value));
+        }
+        assertEquals(LatencyHistogram.LINEAR_VALUES, LatencyHistogram.index(LatencyHistogram.LINEAR_VALUES));
+    }
+
+    @Test
+    public void mapsEveryBucketBackToItsLowerBound() {
+        for (int index = 0; index < LatencyHistogram.BUCKETS; index++) {
+            long lower = LatencyHistogram.lowerBound(index);
+            long width = LatencyHistogram.bucketWidth(index);
+
+            assertEquals(index, LatencyHistogram.index(lower));
+            assertEquals(index, LatencyHistogram.index(lower + width - 1));
+            if (index + 1 < LatencyHistogram.BUCKETS) {
+                assertEquals(lower + width, LatencyHistogram.lowerBound(index + 1));
+            }
+        }
+    }
+
+    @Test
+    public void keepsValuesWithinTheirBucket() {
+        for (long value = 1; value > 0 && value <= LatencyHistogram.MAX_VALUE; value = value * 5 / 3 + 1) {
+            int index = LatencyHistogram.index(value);
+            long lower = LatencyHistogram.lowerBound(index);
+
+            assertTrue(lower <= value && value < lower + LatencyHistogram.bucketWidth(index), "value " + value);
+        }
+    }
+
+    @Test
+    public void boundsTheRelativeWidthOfBuckets() {
+        for (int index = LatencyHistogram.LINEAR_VALUES; index < LatencyHistogram.BUCKETS; index++) {
+            long width = LatencyHistogram.bucketWidth(index);
+
+            assertTrue(width * LatencyHistogram.SUB_BUCKETS <= LatencyHistogram.lowerBound(index), "bucket " + index);
+        }
+    }
+
+    @Test
+    public void mapsTheLargestValueToTheLastBucket() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    public void clampsValuesOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1L, histogram.counts()[0]);
+        assertEquals(1L, histogram.counts()[LatencyHistogram.BUCKETS - 1]);
+        assertEquals(0L, histogram.min());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.max());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.sum());
+    }
+
+    @Test
+    public void reportsPercentilesWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9}) {
+            double expected = percentile * 1_000_000;
+            long actual = histogram.percentile(percentile);
+
+            assertTrue(Math.abs(actual - expected) <= expected / 32, "p" + percentile + " = " + actual);
+        }
+        assertEquals(100_000_000L, histogram.percentile(100));
+        assertEquals(1_000L, histogram.min());
+        assertEquals(100_000_000L, histogram.max());
+        assertEquals(50_000_500d, histogram.mean(), 0.001);
+    }
+
+    @Test
+    public void answersZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0L, histogram.totalCount());
+        assertEquals(0L, histogram.min());
+        assertEquals(0L, histogram.max());
+        assertEquals(0d, histogram.mean(), 0);
+        assertEquals(0L, histogram.percentile(50));
+    }
+
+    @Test
+    public void mergesByAddingCounts() {
+        LatencyHistogram left = new LatencyHistogram();
+        LatencyHistogram right = new LatencyHistogram();
+        left.record(10, 3);
+        left.record(5_000);
+        right.record(10);
+        right.record(2, 2);
+        LatencyHistogram empty = new LatencyHistogram();
+
+        LatencyHistogram merged = left.merge(right).merge(empty);
+
+        assertEquals(7L, merged.totalCount());
+        assertEquals(4L, merged.counts()[10]);
+        assertEquals(2L, merged.counts()[2]);
+        assertEquals(1L, merged.counts()[LatencyHistogram.index(5_000)]);
+        assertEquals(2L, merged.min());
+        assertEquals(5_000L, merged.max());
+        assertEquals(5_044L, merged.sum());
+        assertEquals(10L, merged.percentile(50));
+    }
+
+    @Test
+    public void rebuildsFromRawState() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100, 2);
+        histogram.record(3_000);
+
+        LatencyHistogram copy = LatencyHistogram.of(histogram.counts().clone(), histogram.sum(), histogram.min(),
+                histogram.max());
+
+        assertEquals(histogram.totalCount(), copy.totalCount());
+        assertEquals(histogram.percentile(90), copy.percentile(90));
+        assertEquals(0L, LatencyHistogram.of(new long[LatencyHistogram.BUCKETS], 0, 0, 0).min());
+        assertThrows(IllegalArgumentException.class, () -> LatencyHistogram.of(new long[3], 0, 0, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package pizzashop.kafka.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpaceSavingTest {
+
+    @Test
+    public void countsExactlyUnderCapacity() {
+        SpaceSaving summary = new SpaceSaving(4);
+        summary.add("margherita", "margherita.png", 2);
+        summary.add("diavola", "diavola.png", 1);
+        summary.add("margherita", "margherita.png", 3);
+
+        List<SpaceSaving.Counter> top = summary.top(4);
+
+        assertEquals(2, top.size());
+        assertCounter(top.get(0), "margherita", 2, 0, 5);
+        assertEquals("margherita.png", top.get(0).label());
+        assertCounter(top.get(1), "diavola", 1, 0, 1);
+    }
+
+    @Test
+    public void overestimatesByAtMostTheError() {
+        SpaceSaving summary = new SpaceSaving(10);
+        Map<String, Long> actual = new HashMap<>();
+        Random random = new Random(42);
+        int total = 20_000;
+        for (int index = 0; index < total; index++) {
+            // a few heavy keys over a long tail
+            String key = random.nextInt(4) == 0 ? "tail-" + random.nextInt(1_000) : "heavy-" + random.nextInt(5);
+            summary.add(key, null, 1);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        assertBounded(summary, actual, total);
+    }
+
+    @Test
+    public void sumsSharedKeysWhenMerging() {
+        SpaceSaving left = new SpaceSaving(4);
+        SpaceSaving right = new SpaceSaving(4);
+        left.add("margherita", null, 1);
+        left.add("margherita", null, 1);
+        left.add("diavola", null, 1);
+        right.add("margherita", null, 2);
+        right.add("capricciosa", null, 1);
+
+        List<SpaceSaving.Counter> top = left.merge(right).top(4);
+
+        assertEquals(3, top.size());
+        assertCounter(top.get(0), "margherita", 3, 0, 4);
+        assertEquals(0L, top.get(1).error());
+        assertEquals(0L, top.get(2).error());
+        assertEquals(1L, top.get(1).count());
+        assertEquals(1L, top.get(2).count());
+    }
+
+    @Test
+    public void keepsTheBoundsWhenMergingFullSummaries() {
+        SpaceSaving left = new SpaceSaving(8);
+        SpaceSaving right = new SpaceSaving(8);
+        Map<String, Long> actual = new HashMap<>();
+        Random random = new Random(7);
+        int total = 10_000;
+        for (int index = 0; index < total; index++) {
+            String key = random.nextInt(3) == 0 ? "tail-" + random.nextInt(500) : "heavy-" + random.nextInt(4);
+            (index % 2 == 0 ? left : right).add(key, null, 1);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        SpaceSaving merged = left.merge(right);
+
+        assertEquals(8, merged.counters().size());
+        assertBounded(merged, actual, total);
+    }
+
+    @Test
+    public void listsTheTopKeysHighestFirst() {
+        SpaceSaving summary = new SpaceSaving(8);
+        for (int key = 1; key <= 5; key++) {
+            for (int count = 0; count < key; count++) {
+                summary.add("key-" + key, null, 1);
+            }
+        }
+
+        List<SpaceSaving.Counter> top = summary.top(3);
+
+        assertEquals(3, top.size());
+        assertEquals("key-5", top.get(0).key());
+        assertEquals("key-4", top.get(1).key());
+        assertEquals("key-3", top.get(2).key());
+        assertEquals(5, summary.top(10).size());
+    }
+
+    private static void assertBounded(SpaceSaving summary, Map<String, Long> actual, long total) {
+        for (SpaceSaving.Counter counter : summary.counters()) {
+            long count = actual.getOrDefault(counter.key(), 0L);
+            assertTrue(counter.count() >= count, counter.key() + " undercounted");
+            assertTrue(counter.count() - counter.error() <= count, counter.key() + " overcounted beyond its error");
+        }
+        actual.forEach((key, count) -> {
+            if (count > total / summary.capacity()) {
+                assertTrue(summary.counters().stream().anyMatch(counter -> counter.key().equals(key)),
+                        key + " wasn't tracked");
+            }
+        });
+    }
+
+    private static void assertCounter(SpaceSaving.Counter counter, String key, long count, long error, long quantity) {
+        assertEquals(key, counter.key());
+        assertEquals(count, counter.count());
+        assertEquals(error, counter.error());
+        assertEquals(quantity, counter.quantity());
+    }
+}
@@ -0,0 +1,130 @@
+package pizzashop.kafka.status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pizzashop.kafka.StageMetrics;
+import pizzashop.kafka.model.EnrichedOrder;
+import pizzashop.kafka.model.OrderStatusEntry;
+import pizzashop.kafka.model.TrackedOrder;
+import pizzashop.kafka.serde.BinarySerdes;
+import pizzashop.kafka.serde.JsonDeserializer;
+import pizzashop.kafka.serde.JsonSerializer;
+import pizzashop.kafka.sketch.LatencyHistogram;
+import pizzashop.models.Order;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderStatusProcessorTest {
+    // 2022-10-17T13:30:07.739917 and 2022-10-17T13:30:07.2
+    private static final long CONFIRMED_AT = 1_666_013_407_739_917L;
+    private static final long OTHER_CONFIRMED_AT = 1_666_013_407_200_000L;
+    // six hours after the first one, in millis
+    private static final long EXPIRES_AT = 1_666_035_007_739L;
+
+    private final MockProcessorContext<String, EnrichedOrder> context = new MockProcessorContext<>();
+    private KeyValueStore<String, TrackedOrder> orders;
+    private KeyValueStore<String, OrderStatusEntry> statusIndex;
+    private KeyValueStore<String, Long> statusCounts;
+    private KeyValueStore<String, String> expiryIndex;
+    private OrderStatusProcessor processor;
+
+    @BeforeEach
+    public void setUp() {
+        orders = keyValueStore(OrderStatusTracker.STORE,
+                Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(TrackedOrder.class)));
+        statusIndex = keyValueStore(OrderStatusTracker.STATUS_INDEX_STORE,
+                Serdes.serdeFrom(new JsonSerializer<>(), new JsonDeserializer<>(OrderStatusEntry.class)));
+        statusCounts = keyValueStore(OrderStatusTracker.STATUS_COUNTS_STORE, Serdes.Long());
+        expiryIndex = keyValueStore(OrderStatusTracker.EXPIRY_INDEX_STORE, Serdes.String());
+        WindowStore<String, LatencyHistogram> latencies = Stores.windowStoreBuilder(
+                Stores.inMemoryWindowStore(OrderStatusTracker.LATENCIES_STORE, OrderStatusTracker.LATENCIES_RETENTION,
+                        OrderStatusTracker.LATENCIES_WINDOW, false),
+                Serdes.String(), BinarySerdes.LatencyHistogram()).withLoggingDisabled().build();
+        latencies.init(context.getStateStoreContext(), latencies);
+        context.addStateStore(latencies);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderStatusTracker tracker = new OrderStatusTracker(Duration.ofMinutes(60), Duration.ofHours(6),
+                new StageMetrics(registry, "tracked-orders"), new StageMetrics(registry, "enriched-orders"));
+        processor = new OrderStatusProcessor(tracker);
+
+        // orders stored before the expiry index and the status counts existed
+        store("order-1", CONFIRMED_AT);
+        store("order-2", OTHER_CONFIRMED_AT);
+    }
+
+    @Test
+    public void indexesStoredOrdersByExpiry() {
+        processor.init(context);
+
+        long bucket = OrderStatusTracker.expiryBucket(EXPIRES_AT);
+        assertEquals(List.of(OrderStatusTracker.expiryKey(bucket, "order-1"),
+                OrderStatusTracker.expiryKey(bucket, "order-2")), keys(expiryIndex));
+    }
+
+    @Test
+    public void countsIndexedOrders() {
+        processor.init(context);
+
+        // both entered ORDER_CONFIRMED in the same second
+        assertEquals(List.of(OrderStatusTracker.countKey("ORDER_CONFIRMED", CONFIRMED_AT)), keys(statusCounts));
+        assertEquals(2, statusCounts.get(OrderStatusTracker.countKey("ORDER_CONFIRMED", CONFIRMED_AT)));
+    }
+
+    @Test
+    public void leavesExistingIndexesAlone() {
+        String expiryKey = OrderStatusTracker.expiryKey(OrderStatusTracker.expiryBucket(EXPIRES_AT), "order-1");
+        expiryIndex.put(expiryKey, "order-1");
+        String countKey = OrderStatusTracker.countKey("ORDER_CONFIRMED", CONFIRMED_AT);
+        statusCounts.put(countKey, 1L);
+
+        processor.init(context);
+
+        assertEquals(List.of(expiryKey), keys(expiryIndex));
+        assertEquals(1, statusCounts.get(countKey));
+    }
+
+    private void store(String id, long enteredAt) {
+        Order order = new Order();
+        order.id = id;
+        order.price = 4259;
+        TrackedOrder tracked = new TrackedOrder();
+        tracked.order = order;
+        tracked.status = "ORDER_CONFIRMED";
+        tracked.updatedAtMicros = enteredAt;
+        tracked.enteredAt = enteredAt;
+        tracked.itemsPublished = true;
+        tracked.expiresAt = EXPIRES_AT;
+        orders.put(id, tracked);
+        statusIndex.put(OrderStatusTracker.indexKey("ORDER_CONFIRMED", enteredAt, id),
+                new OrderStatusEntry(id, order.price, enteredAt));
+    }
+
+    private <V> KeyValueStore<String, V> keyValueStore(String name, Serde<V> valueSerde) {
+        KeyValueStore<String, V> store = Stores.keyValueStoreBuilder(
+                Stores.inMemoryKeyValueStore(name), Serdes.String(), valueSerde).withLoggingDisabled().build();
+        store.init(context.getStateStoreContext(), store);
+        context.addStateStore(store);
+        return store;
+    }
+
+    private static List<String> keys(KeyValueStore<String, ?> store) {
+        List<String> keys = new ArrayList<>();
+        try (KeyValueIterator<String, ?> all = store.all()) {
+            all.forEachRemaining(entry -> keys.add(entry.key));
+        }
+        return keys;
+    }
+}
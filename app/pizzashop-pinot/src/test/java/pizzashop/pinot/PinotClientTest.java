@@ -0,0 +1,193 @@
+package pizzashop.pinot;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.apache.pinot.client.Connection;
+import org.apache.pinot.client.ResultSet;
+import org.apache.pinot.client.ResultSetGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PinotClientTest {
+    private static final Query QUERY = new Query("overview", "overviewTotal", "select count(*) from orders");
+
+    private final Map<String, Connection> connections = new HashMap<>();
+    private HttpServer healthServer;
+    private volatile int healthStatus = 200;
+    private PinotExecutor executor;
+    private PinotClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        healthServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        healthServer.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(healthStatus, -1);
+            exchange.close();
+        });
+        healthServer.start();
+
+        executor = new PinotExecutor();
+        executor.maxConcurrentQueries = 8;
+        executor.init();
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.registry = new SimpleMeterRegistry();
+
+        client = new PinotClient();
+        client.queryTimeoutMs = 60_000;
+        client.connectTimeoutMs = 1_000;
+        // checks are run by the tests
+        client.healthCheckIntervalMs = 3_600_000;
+        client.maxConsecutiveFailures = 3;
+        client.executor = executor;
+        client.metrics = metrics;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+        healthServer.stop(0);
+    }
+
+    @Test
+    public void sendsQueriesToTheBrokerWithTheLowestLatency() {
+        start("localhost:1", "localhost:2");
+        fail("localhost:1");
+        ResultSet resultSet = succeed("localhost:2");
+
+        // both start without latency, the first one is tried and its failure counts as a timed out query
+        assertThrows(IllegalStateException.class, () -> client.execute(QUERY).await().indefinitely());
+        assertSame(resultSet, client.execute(QUERY).await().indefinitely());
+        assertSame(resultSet, client.execute(QUERY).await().indefinitely());
+
+        verify(connections.get("localhost:1")).executeAsync(QUERY.sql());
+        assertEquals(List.of("localhost:1", "localhost:2"), client.healthyBrokers());
+    }
+
+    @Test
+    public void selectsTheBrokerWhenSubscribed() {
+        start("localhost:1", "localhost:2");
+        fail("localhost:1");
+        ResultSet resultSet = succeed("localhost:2");
+        Uni<ResultSet> built = client.execute(QUERY);
+
+        assertThrows(IllegalStateException.class, () -> client.execute(QUERY).await().indefinitely());
+
+        assertSame(resultSet, built.await().indefinitely());
+    }
+
+    @Test
+    public void ejectsABrokerAfterConsecutiveFailures() {
+        start("localhost:1");
+        fail("localhost:1");
+
+        for (int failure = 1; failure <= 3; failure++) {
+            assertEquals(List.of("localhost:1"), client.healthyBrokers());
+            assertThrows(IllegalStateException.class, () -> client.execute(QUERY).await().indefinitely());
+        }
+
+        assertEquals(List.of(), client.healthyBrokers());
+        // every broker is ejected, queries still go to the fastest one
+        assertThrows(IllegalStateException.class, () -> client.execute(QUERY).await().indefinitely());
+    }
+
+    @Test
+    public void resetsFailuresOnSuccess() {
+        start("localhost:1");
+        Connection connection = connections.get("localhost:1");
+        ResultSetGroup resultSetGroup = mock(ResultSetGroup.class);
+        when(resultSetGroup.getResultSet(0)).thenReturn(mock(ResultSet.class));
+        when(connection.executeAsync(anyString())).thenReturn(
+                failed(), failed(), CompletableFuture.completedFuture(resultSetGroup), failed(), failed());
+
+        for (int query = 0; query < 5; query++) {
+            client.execute(QUERY).onFailure().recoverWithNull().await().indefinitely();
+        }
+
+        assertEquals(List.of("localhost:1"), client.healthyBrokers());
+    }
+
+    @Test
+    public void doesNotCountRejectedQueriesAgainstTheBroker() {
+        executor.maxConcurrentQueries = 0;
+        executor.init();
+        start("localhost:1");
+
+        for (int query = 0; query < 3; query++) {
+            assertThrows(RejectedExecutionException.class, () -> client.execute(QUERY).await().indefinitely());
+        }
+
+        verify(connections.get("localhost:1"), never()).executeAsync(anyString());
+        assertEquals(List.of("localhost:1"), client.healthyBrokers());
+    }
+
+    @Test
+    public void addsBrokersBackOncePassingTheirHealthCheck() {
+        String broker = "localhost:" + healthServer.getAddress().getPort();
+        start(broker);
+        fail(broker);
+        for (int failure = 0; failure < 3; failure++) {
+            client.execute(QUERY).onFailure().recoverWithNull().await().indefinitely();
+        }
+        assertEquals(List.of(), client.healthyBrokers());
+
+        healthStatus = 503;
+        client.checkHealth().join();
+        assertEquals(List.of(), client.healthyBrokers());
+
+        healthStatus = 200;
+        client.checkHealth().join();
+        assertEquals(List.of(broker), client.healthyBrokers());
+    }
+
+    @Test
+    public void ejectsBrokersFailingTheirHealthCheck() {
+        String broker = "localhost:" + healthServer.getAddress().getPort();
+        start(broker);
+
+        healthStatus = 503;
+        client.checkHealth().join();
+
+        assertEquals(List.of(), client.healthyBrokers());
+    }
+
+    private void start(String... brokers) {
+        client.brokerHosts = List.of(brokers);
+        client.init(hostPort -> connections.computeIfAbsent(hostPort, key -> mock(Connection.class)));
+    }
+
+    private void fail(String broker) {
+        when(connections.get(broker).executeAsync(anyString())).thenAnswer(invocation -> failed());
+    }
+
+    private ResultSet succeed(String broker) {
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetGroup resultSetGroup = mock(ResultSetGroup.class);
+        when(resultSetGroup.getResultSet(0)).thenReturn(resultSet);
+        when(connections.get(broker).executeAsync(anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(resultSetGroup));
+        return resultSet;
+    }
+
+    private static CompletableFuture<ResultSetGroup> failed() {
+        return CompletableFuture.failedFuture(new IllegalStateException("broker down"));
+    }
+}
@@ -0,0 +1,110 @@
+package pizzashop.pinot;
+
+import io.smallrye.mutiny.Uni;
+import org.apache.pinot.client.ResultSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class QueryCacheTest {
+    private static final Query QUERY = new Query("overview", "overviewTotal", "select count(*) from orders");
+    private static final Duration MINUTE = Duration.ofSeconds(60);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong millis = new AtomicLong(Instant.parse("2022-10-17T12:00:45Z").toEpochMilli());
+    private final AtomicInteger loads = new AtomicInteger();
+    private QueryCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new QueryCache();
+        cache.maximumSize = 100;
+        cache.ticker = nanos::get;
+        cache.clock = millis::get;
+        cache.init();
+    }
+
+    @Test
+    public void computesTheTimeUntilTheNextBucket() {
+        long at = Instant.parse("2022-10-17T12:00:45Z").toEpochMilli();
+
+        assertEquals(TimeUnit.SECONDS.toNanos(15), QueryCache.untilNextBucket(MINUTE, at));
+        assertEquals(TimeUnit.SECONDS.toNanos(60), QueryCache.untilNextBucket(MINUTE, at + 15_000));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), QueryCache.untilNextBucket(MINUTE, at + 14_999));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), QueryCache.untilNextBucket(Duration.ofSeconds(1), 1_750));
+    }
+
+    @Test
+    public void expiresEntriesAtTheNextBucket() {
+        ResultSet first = cache.get(QUERY, MINUTE, this::load).await().indefinitely();
+
+        advance(14_999);
+        assertSame(first, cache.get(QUERY, MINUTE, this::load).await().indefinitely());
+        assertEquals(1, loads.get());
+
+        advance(1);
+        ResultSet second = cache.get(QUERY, MINUTE, this::load).await().indefinitely();
+        assertEquals(2, loads.get());
+
+        // loaded on a boundary, the entry lasts a whole bucket
+        advance(59_999);
+        assertSame(second, cache.get(QUERY, MINUTE, this::load).await().indefinitely());
+        advance(1);
+        cache.get(QUERY, MINUTE, this::load).await().indefinitely();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void sharesALoadInFlight() {
+        CompletableFuture<ResultSet> pending = new CompletableFuture<>();
+        CompletableFuture<ResultSet> first = cache.get(QUERY, MINUTE, query -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(pending);
+        }).subscribeAsCompletionStage();
+        CompletableFuture<ResultSet> second = cache.get(QUERY, MINUTE, this::load).subscribeAsCompletionStage();
+
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        ResultSet resultSet = mock(ResultSet.class);
+        pending.complete(resultSet);
+
+        assertSame(resultSet, first.join());
+        assertSame(resultSet, second.join());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void dropsFailedLoads() {
+        Uni<ResultSet> failed = cache.get(QUERY, MINUTE, query -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().failure(new IllegalStateException("broker down"));
+        });
+        assertThrows(IllegalStateException.class, () -> failed.await().indefinitely());
+
+        cache.get(QUERY, MINUTE, this::load).await().indefinitely();
+
+        assertEquals(2, loads.get());
+    }
+
+    private Uni<ResultSet> load(Query query) {
+        loads.incrementAndGet();
+        return Uni.createFrom().item(mock(ResultSet.class));
+    }
+
+    private void advance(long advanceMillis) {
+        millis.addAndGet(advanceMillis);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(advanceMillis));
+    }
+}
@@ -0,0 +1,71 @@
+package pizzashop.pinot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QueryTemplateTest {
+
+    @Test
+    public void bindsNamedParameters() {
+        QueryTemplate template = QueryTemplate.of("order.statuses",
+                "select * from orders where id = :orderId and price > :price limit :limit");
+
+        Query query = template.bind(Map.of("orderId", "abc", "price", 4.5, "limit", 10));
+
+        assertEquals("select * from orders where id = 'abc' and price > 4.5 limit 10", query.sql());
+        assertEquals("order", query.endpoint());
+        assertEquals("order.statuses", query.template());
+    }
+
+    @Test
+    public void bindsARepeatedParameterEveryTime() {
+        Query query = QueryTemplate.of("users", "select * from t where a = :id or b = :id").bind("id", 7L);
+
+        assertEquals("select * from t where a = 7 or b = 7", query.sql());
+        assertEquals("users", query.endpoint());
+    }
+
+    @Test
+    public void escapesSingleQuotesByDoublingThem() {
+        Query query = QueryTemplate.of("users", "select * from t where name = :name").bind("name", "o'brien''s");
+
+        assertEquals("select * from t where name = 'o''brien''''s'", query.sql());
+    }
+
+    @Test
+    public void leavesParametersInsideQuotedLiteralsAlone() {
+        QueryTemplate template = QueryTemplate.of("order.statuses",
+                "select ToDateTime(ts, 'yyyy-MM-dd HH:mm:ss') from t where note = 'it''s :x' and id = :orderId");
+
+        Query query = template.bind("orderId", "abc");
+
+        assertEquals("select ToDateTime(ts, 'yyyy-MM-dd HH:mm:ss') from t where note = 'it''s :x' and id = 'abc'",
+                query.sql());
+    }
+
+    @Test
+    public void keepsTheSqlOfTemplatesWithoutParameters() {
+        String sql = "select count(*) from orders";
+
+        assertEquals(sql, QueryTemplate.of("overview.total", sql).bind().sql());
+    }
+
+    @Test
+    public void rejectsMissingParameters() {
+        QueryTemplate template = QueryTemplate.of("users", "select * from t where a = :a and b = :b");
+
+        assertThrows(IllegalArgumentException.class, () -> template.bind("a", 1));
+    }
+
+    @Test
+    public void rejectsValuesThatCantBeWrittenAsLiterals() {
+        QueryTemplate template = QueryTemplate.of("users", "select * from t where a = :a");
+
+        assertThrows(IllegalArgumentException.class, () -> template.bind("a", Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> template.bind("a", true));
+    }
+}
@@ -0,0 +1,47 @@
+package pizzashop;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
+import pizzashop.repository.OrdersQueries;
+import pizzashop.repository.models.OrdersSummary;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.Rollup;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+Endpoints other pizzashop instances call to read the shards this instance owns. They only ever read local state,
+the fan-out and merging happens in OrdersQueries on the instance that received the original request.
+ */
+@ApplicationScoped
+@Path("/internal/orders")
+public class InternalOrdersResource {
+    @Inject
+    OrdersQueries ordersQueries;
+
+    @GET
+    @Path("/overview")
+    public OrdersSummary overview(
+            @QueryParam("now") long now,
+            @QueryParam("key") List<String> keys,
+            @QueryParam("stale") boolean stale
+    ) {
+        return ordersQueries.localOrdersSummary(keys, Instant.ofEpochMilli(now), stale);
+    }
+
+    @GET
+    @Path("/rollup")
+    public List<TimePeriod> rollup(
+            @QueryParam("resolution") Rollup rollup,
+            @QueryParam("latest") long latestWindowStart,
+            @QueryParam("periods") int periods,
+            @QueryParam("key") List<String> keys,
+            @QueryParam("stale") boolean stale
+    ) {
+        return ordersQueries.localRollup(rollup, keys, Instant.ofEpochMilli(latestWindowStart), periods, stale);
+    }
+}
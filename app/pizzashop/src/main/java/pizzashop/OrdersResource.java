@@ -1,12 +1,18 @@
 package pizzashop;
 
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
-import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.QueryParam;
 import pizzashop.repository.OrdersQueries;
 import pizzashop.repository.models.OrdersSummary;
+import pizzashop.repository.models.SummaryRow;
+import pizzashop.streams.Rollup;
+
+import java.util.List;
 
 @ApplicationScoped
 @Path("/orders")
@@ -16,8 +22,19 @@ public class OrdersResource {
 
     @GET
     @Path("/overview")
-    public Response overview() {
-        OrdersSummary ordersSummary = ordersQueries.ordersSummary();
-        return Response.ok(ordersSummary).build();
+    public Uni<OrdersSummary> overview() {
+        return ordersQueries.ordersSummary();
+    }
+
+    @GET
+    @Path("/ordersPerMinute")
+    public Uni<List<SummaryRow>> ordersPerMinute(@QueryParam("minutes") @DefaultValue("60") int minutes) {
+        return ordersQueries.rollup(Rollup.MINUTE, minutes);
+    }
+
+    @GET
+    @Path("/ordersPerHour")
+    public Uni<List<SummaryRow>> ordersPerHour(@QueryParam("hours") @DefaultValue("24") int hours) {
+        return ordersQueries.rollup(Rollup.HOUR, hours);
     }
 }
@@ -0,0 +1,22 @@
+package pizzashop;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+public class StoreExceptionMappers {
+
+    @ConfigProperty(name = "pizzashop.stores.retry-after-seconds", defaultValue = "1")
+    int retryAfterSeconds;
+
+    // Stores are unavailable while Kafka Streams starts up or rebalances, the caller should simply retry
+    @ServerExceptionMapper
+    public Response storeNotReady(InvalidStateStoreException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(e.getMessage())
+                .build();
+    }
+}
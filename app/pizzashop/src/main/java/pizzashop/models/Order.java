@@ -11,6 +11,8 @@ public class Order {
     public String id;
     public String userId;
     public String createdAt;
+    // createdAt in epoch micros, set instead of it with pizzashop.orders.event-timestamps=epoch, see EventTime
+    public long createdAtMicros;
 
     public double price;
 
@@ -0,0 +1,81 @@
+package pizzashop.repository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Store handles are looked up once and cached until the next KafkaStreams state transition. Quarkus registers this bean
+as the state listener of the KafkaStreams instance, so a rebalance drops the cached handles and callers fail fast with
+an InvalidStateStoreException instead of spinning until the stream thread is RUNNING again.
+ */
+@ApplicationScoped
+public class KStreamsStores implements KafkaStreams.StateListener {
+
+    private static final Logger LOG = Logger.getLogger(KStreamsStores.class);
+
+    @Inject
+    KafkaStreams streams;
+
+    private final Map<String, Object> stores = new ConcurrentHashMap<>();
+
+    private volatile KafkaStreams.State state = KafkaStreams.State.CREATED;
+
+    @Override
+    public void onChange(KafkaStreams.State newState, KafkaStreams.State oldState) {
+        LOG.infof("Kafka Streams state changed from %s to %s", oldState, newState);
+        state = newState;
+        stores.clear();
+    }
+
+    /**
+     * Returns the local window store {@code name}. With {@code stale} set, standby replicas may serve the read too.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ReadOnlyWindowStore<String, T> windowStore(String name, boolean stale) {
+        ensureRunning(name);
+        return (ReadOnlyWindowStore<String, T>) stores.computeIfAbsent(cacheKey(name, stale), cacheKey -> {
+            StoreQueryParameters<ReadOnlyWindowStore<String, T>> parameters =
+                    StoreQueryParameters.fromNameAndType(name, QueryableStoreTypes.windowStore());
+            return streams.store(stale ? parameters.enableStaleStores() : parameters);
+        });
+    }
+
+    /**
+     * Returns the active and standby hosts of the partition {@code key} of store {@code name} lives in.
+     */
+    public KeyQueryMetadata metadataForKey(String name, String key) {
+        ensureRunning(name);
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(name, key, Serdes.String().serializer());
+        if (metadata == null || metadata.equals(KeyQueryMetadata.NOT_AVAILABLE)) {
+            throw new InvalidStateStoreException("No metadata available for key " + key + " of store " + name);
+        }
+        return metadata;
+    }
+
+    public void invalidate(String name) {
+        stores.remove(cacheKey(name, false));
+        stores.remove(cacheKey(name, true));
+    }
+
+    private void ensureRunning(String name) {
+        KafkaStreams.State current = state;
+        if (current != KafkaStreams.State.RUNNING) {
+            throw new InvalidStateStoreException("Store " + name + " is not ready, Kafka Streams is " + current);
+        }
+    }
+
+    private static String cacheKey(String name, boolean stale) {
+        return stale ? name + "#stale" : name;
+    }
+}
@@ -1,9 +1,16 @@
 package pizzashop.repository;
 
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.state.ReadOnlyWindowStore;
 import org.apache.kafka.streams.state.WindowStoreIterator;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 public class KStreamsWindowStore<T> {
     private final ReadOnlyWindowStore<String, T> store;
@@ -12,12 +19,34 @@ public class KStreamsWindowStore<T> {
         this.store = store;
     }
 
-    public T firstEntry(Instant from, Instant to) {
-        try (WindowStoreIterator<T> iterator = store.fetch("count", from, to)) {
-            if (iterator.hasNext()) {
-                return iterator.next().value;
+    /**
+     * Folds the windows of every key in {@code keys} into {@code periods} consecutive periods ending with the window
+     * that starts at {@code latestWindowStart}, which must be aligned on the window size. Element 0 is the most recent
+     * period, made of the windows starting in {@code (latestWindowStart - period, latestWindowStart]}, element 1 the
+     * one before it, and so on.
+     * <p>
+     * Each key is read with a single backward fetch, newest window first. Periods without any window keep their
+     * initial value, so an empty store gives empty periods rather than an error.
+     */
+    public <R> List<R> aggregatePeriods(Collection<String> keys, Instant latestWindowStart, Duration period,
+                                        int periods, Supplier<R> initial, BiFunction<R, T, R> aggregator) {
+        List<R> results = new ArrayList<>(periods);
+        for (int index = 0; index < periods; index++) {
+            results.add(initial.get());
+        }
+
+        long end = latestWindowStart.toEpochMilli();
+        long periodMillis = period.toMillis();
+        Instant from = Instant.ofEpochMilli(end - periods * periodMillis + 1);
+        for (String key : keys) {
+            try (WindowStoreIterator<T> iterator = store.backwardFetch(key, from, latestWindowStart)) {
+                while (iterator.hasNext()) {
+                    KeyValue<Long, T> window = iterator.next();
+                    int index = (int) ((end - window.key) / periodMillis);
+                    results.set(index, aggregator.apply(results.get(index), window.value));
+                }
             }
         }
-        throw new RuntimeException("No entries found in store between " + from + " and " + to);
+        return results;
     }
 }
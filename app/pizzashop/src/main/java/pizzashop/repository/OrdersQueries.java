@@ -1,74 +1,195 @@
 package pizzashop.repository;
 
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.apache.kafka.streams.KafkaStreams;
-import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.KeyQueryMetadata;
 import org.apache.kafka.streams.errors.InvalidStateStoreException;
-import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.HostInfo;
 import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 import pizzashop.repository.models.OrdersSummary;
+import pizzashop.repository.models.SummaryRow;
 import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.OrdersAndRevenueCountsTopology;
+import pizzashop.streams.Rollup;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
 public class OrdersQueries {
 
+    private static final Logger LOG = Logger.getLogger(OrdersQueries.class);
+    // Same format as the dateMin column of the Pinot ordersPerMinute query
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
     @Inject
-    private KafkaStreams streams;
+    KStreamsStores stores;
 
-    public OrdersSummary ordersSummary() {
-        KStreamsWindowStore<Long> countStore = new KStreamsWindowStore<>(ordersCountsStore());
-        KStreamsWindowStore<Double> revenueStore = new KStreamsWindowStore<>(revenueStore());
+    @Inject
+    RemoteOrdersQueries remoteQueries;
 
-        Instant now = Instant.now();
-        Instant oneMinuteAgo = now.minusSeconds(60);
-        Instant twoMinutesAgo = now.minusSeconds(120);
+    @ConfigProperty(name = "pizzashop.orders.shards", defaultValue = "1")
+    int shards;
 
-        long recentCount = countStore.firstEntry(oneMinuteAgo, now);
-        double recentRevenue = revenueStore.firstEntry(oneMinuteAgo, now);
+    @ConfigProperty(name = "quarkus.kafka-streams.application-server")
+    String applicationServer;
 
-        long  previousCount = countStore.firstEntry(twoMinutesAgo, oneMinuteAgo);
-        double previousRevenue = revenueStore.firstEntry(twoMinutesAgo, oneMinuteAgo);
+    public Uni<OrdersSummary> ordersSummary() {
+        Instant now = Instant.now();
 
-        TimePeriod currentTimePeriod = new TimePeriod(recentCount, recentRevenue);
-        TimePeriod previousTimePeriod = new TimePeriod(previousCount, previousRevenue);
-        return new OrdersSummary(
-                currentTimePeriod, previousTimePeriod
-        );
+        return acrossShards(OrdersAndRevenueCountsTopology.ORDERS_SUMMARY_STORE,
+                (keys, stale) -> localOrdersSummary(keys, now, stale),
+                (host, keys, stale) -> remoteQueries.ordersSummary(host, keys, now, stale))
+                .map(summaries -> summaries.stream().reduce(new OrdersSummary(), OrdersSummary::add));
     }
 
     /*
-    Both ordersCountsStore and revenueStore are returning data from window stores that hold the order count and amount
-    of revenue generated, respectively. The reason for the while(true) { try {} catch {} } code block in both functions
-    is that the store might not be available if we call this code before the stream thread is in a RUNNING state.
-    Assuming we don’t have any bugs in our code, we will eventually get to the RUNNING state; it just might take a bit
-    longer than it takes for the HTTP endpoint to start up.
+    Orders and revenue of the last periods windows of the rollup, oldest first and including the current window,
+    skipping the windows without orders like the group by of the Pinot ordersPerMinute query does.
      */
-    private ReadOnlyWindowStore<String, Double> revenueStore() {
-        while (true) {
-            try {
-                return streams.store(StoreQueryParameters.fromNameAndType(
-                        "RevenueStore",
-                        QueryableStoreTypes.windowStore()
-                ));
-            } catch (InvalidStateStoreException e) {
-                System.out.println("e = " + e);
+    public Uni<List<SummaryRow>> rollup(Rollup rollup, int requestedPeriods) {
+        int periods = periods(rollup, requestedPeriods);
+        Instant latestWindowStart = Instant.ofEpochMilli(
+                Instant.now().toEpochMilli() / rollup.window().toMillis() * rollup.window().toMillis());
+
+        return acrossShards(rollup.storeName(),
+                (keys, stale) -> localRollup(rollup, keys, latestWindowStart, periods, stale),
+                (host, keys, stale) -> remoteQueries.rollup(host, rollup, keys, latestWindowStart, periods, stale))
+                .map(partials -> rows(rollup, latestWindowStart, periods, partials));
+    }
+
+    /* The number of windows requested, clamped to the complete windows the store keeps */
+    static int periods(Rollup rollup, int requestedPeriods) {
+        return Math.max(1, Math.min(requestedPeriods, rollup.maxPeriods()));
+    }
+
+    /* Merges the periods of every group of shards, most recent first, into the rows of the non-empty windows */
+    static List<SummaryRow> rows(Rollup rollup, Instant latestWindowStart, int periods,
+                                 List<List<TimePeriod>> partials) {
+        List<TimePeriod> merged = new ArrayList<>(periods);
+        for (int index = 0; index < periods; index++) {
+            TimePeriod period = new TimePeriod();
+            for (List<TimePeriod> partial : partials) {
+                period.add(partial.get(index));
             }
+            merged.add(period);
         }
-    }
 
-    private ReadOnlyWindowStore<String, Long> ordersCountsStore() {
-        while (true) {
-            try {
-                return streams.store(StoreQueryParameters.fromNameAndType(
-                        "OrdersCountStore",
-                        QueryableStoreTypes.windowStore())
-                );
-            } catch (InvalidStateStoreException e) {
-                System.out.println("e = " + e);
+        List<SummaryRow> rows = new ArrayList<>();
+        for (int index = periods - 1; index >= 0; index--) {
+            TimePeriod period = merged.get(index);
+            if (period.getOrders() > 0) {
+                Instant windowStart = latestWindowStart.minus(rollup.window().multipliedBy(index));
+                rows.add(new SummaryRow(TIMESTAMP_FORMAT.format(windowStart),
+                        period.getOrders(), period.getTotalPrice()));
             }
         }
+        return rows;
+    }
+
+    /*
+    Each shard key lives in exactly one partition of a store, and that partition may be hosted by another pizzashop
+    instance. Shards are grouped by the hosts that can serve them (active first, then standbys), every group is queried
+    in parallel and the partial results are returned for the caller to merge. A group falls back to the next standby
+    when the active host fails or does not answer within the per-host timeout.
+     */
+    private <R> Uni<List<R>> acrossShards(String storeName, LocalQuery<R> local, RemoteQuery<R> remote) {
+        Map<List<HostInfo>, List<String>> keysByReplicas = new LinkedHashMap<>();
+        for (String key : OrdersAndRevenueCountsTopology.shardKeys(shards)) {
+            KeyQueryMetadata metadata = stores.metadataForKey(storeName, key);
+            List<HostInfo> replicas = new ArrayList<>();
+            replicas.add(metadata.activeHost());
+            replicas.addAll(metadata.standbyHosts());
+            keysByReplicas.computeIfAbsent(replicas, hosts -> new ArrayList<>()).add(key);
+        }
+
+        List<Uni<R>> partials = new ArrayList<>();
+        keysByReplicas.forEach((replicas, keys) -> partials.add(fromReplicas(replicas, keys, local, remote)));
+
+        return Uni.join().all(partials).andFailFast();
+    }
+
+    private <R> Uni<R> fromReplicas(List<HostInfo> replicas, List<String> keys, LocalQuery<R> local,
+                                    RemoteQuery<R> remote) {
+        HostInfo self = HostInfo.buildFromEndpoint(applicationServer);
+
+        Uni<R> result = null;
+        for (int index = 0; index < replicas.size(); index++) {
+            HostInfo host = replicas.get(index);
+            boolean standby = index > 0;
+            Uni<R> attempt = host.equals(self)
+                    ? Uni.createFrom().item(() -> local.query(keys, standby))
+                            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                    : remote.query(host, keys, standby);
+
+            result = result == null ? attempt : result.onFailure().recoverWithUni(failure -> {
+                LOG.warnf("Falling back to standby %s for %s: %s", host, keys, failure.getMessage());
+                return attempt;
+            });
+        }
+        return result;
+    }
+
+    /*
+    The summary store might not be available if we call this code before the stream thread is in a RUNNING state, or
+    while it is rebalancing. In that case an InvalidStateStoreException is thrown straight away, it is turned into a
+    503 so the caller can retry once the stream thread is RUNNING again.
+     */
+    public OrdersSummary localOrdersSummary(Collection<String> keys, Instant now, boolean stale) {
+        ReadOnlyWindowStore<String, TimePeriod> store =
+                stores.windowStore(OrdersAndRevenueCountsTopology.ORDERS_SUMMARY_STORE, stale);
+        try {
+            return summarize(new KStreamsWindowStore<>(store), keys, now);
+        } catch (InvalidStateStoreException e) {
+            // The cached handle went stale between two state transitions, look it up again on the next request
+            stores.invalidate(OrdersAndRevenueCountsTopology.ORDERS_SUMMARY_STORE);
+            throw e;
+        }
+    }
+
+    public List<TimePeriod> localRollup(Rollup rollup, Collection<String> keys, Instant latestWindowStart,
+                                        int periods, boolean stale) {
+        ReadOnlyWindowStore<String, TimePeriod> store = stores.windowStore(rollup.storeName(), stale);
+        try {
+            return new KStreamsWindowStore<>(store).aggregatePeriods(keys, latestWindowStart, rollup.window(),
+                    periods, TimePeriod::new, TimePeriod::add);
+        } catch (InvalidStateStoreException e) {
+            stores.invalidate(rollup.storeName());
+            throw e;
+        }
+    }
+
+    private OrdersSummary summarize(KStreamsWindowStore<TimePeriod> summaryStore, Collection<String> keys,
+                                    Instant now) {
+        // The store holds one bucket per second and shard. A minute is the 60 buckets ending with the one now falls
+        // in, so both minutes always span the same number of buckets whatever the milliseconds of now.
+        Instant currentBucket = now.truncatedTo(ChronoUnit.SECONDS);
+        List<TimePeriod> minutes = summaryStore.aggregatePeriods(keys, currentBucket, Duration.ofMinutes(1), 2,
+                TimePeriod::new, TimePeriod::add);
+
+        return new OrdersSummary(
+                minutes.get(0), minutes.get(1)
+        );
+    }
+
+    private interface LocalQuery<R> {
+        R query(List<String> keys, boolean stale);
+    }
+
+    private interface RemoteQuery<R> {
+        Uni<R> query(HostInfo host, List<String> keys, boolean stale);
     }
 }
@@ -0,0 +1,115 @@
+package pizzashop.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.streams.state.HostInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pizzashop.repository.models.OrdersSummary;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.Rollup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/*
+Calls the /internal/orders endpoints of other pizzashop instances. Every call is bounded by the per-host timeout so
+a slow or dead instance fails fast and OrdersQueries can move on to a standby replica.
+ */
+@ApplicationScoped
+public class RemoteOrdersQueries {
+    private static final TypeReference<List<TimePeriod>> TIME_PERIODS = new TypeReference<>() {
+    };
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "pizzashop.queries.remote-timeout-ms", defaultValue = "500")
+    long timeoutMs;
+
+    private Duration timeout;
+    private HttpClient httpClient;
+
+    @PostConstruct
+    void init() {
+        timeout = Duration.ofMillis(timeoutMs);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public Uni<OrdersSummary> ordersSummary(HostInfo host, Collection<String> keys, Instant now, boolean stale) {
+        StringBuilder uri = new StringBuilder("http://")
+                .append(host.host()).append(':').append(host.port())
+                .append("/internal/orders/overview?now=").append(now.toEpochMilli())
+                .append("&stale=").append(stale);
+        for (String key : keys) {
+            uri.append("&key=").append(URLEncoder.encode(key, StandardCharsets.UTF_8));
+        }
+
+        return get(URI.create(uri.toString()))
+                .map(body -> read(body, OrdersSummary.class));
+    }
+
+    public Uni<List<TimePeriod>> rollup(HostInfo host, Rollup rollup, Collection<String> keys,
+                                        Instant latestWindowStart, int periods, boolean stale) {
+        StringBuilder uri = new StringBuilder("http://")
+                .append(host.host()).append(':').append(host.port())
+                .append("/internal/orders/rollup?resolution=").append(rollup.name())
+                .append("&latest=").append(latestWindowStart.toEpochMilli())
+                .append("&periods=").append(periods)
+                .append("&stale=").append(stale);
+        for (String key : keys) {
+            uri.append("&key=").append(URLEncoder.encode(key, StandardCharsets.UTF_8));
+        }
+
+        return get(URI.create(uri.toString()))
+                .map(body -> read(body, TIME_PERIODS));
+    }
+
+    private Uni<byte[]> get(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .GET()
+                .build();
+
+        return Uni.createFrom().completionStage(() ->
+                        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+                .ifNoItem().after(timeout).fail()
+                .map(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException(uri + " responded with " + response.statusCode());
+                    }
+                    return response.body();
+                });
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(byte[] body, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
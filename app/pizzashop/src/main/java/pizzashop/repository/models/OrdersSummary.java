@@ -13,6 +13,16 @@ public class OrdersSummary {
         this.previousTimePeriod = previousTimePeriod;
     }
 
+    public OrdersSummary() {
+        this(new TimePeriod(), new TimePeriod());
+    }
+
+    public OrdersSummary add(OrdersSummary other) {
+        currentTimePeriod.add(other.currentTimePeriod);
+        previousTimePeriod.add(other.previousTimePeriod);
+        return this;
+    }
+
     public TimePeriod getCurrentTimePeriod() {
         return currentTimePeriod;
     }
@@ -18,9 +18,16 @@ public class TimePeriod {
         this.totalPrice = 0;
     }
 
-    public void addOrder(Order order) {
+    public TimePeriod addOrder(Order order) {
         orders += 1;
         totalPrice += order.price;
+        return this;
+    }
+
+    public TimePeriod add(TimePeriod other) {
+        orders += other.orders;
+        totalPrice += other.totalPrice;
+        return this;
     }
 
     public long getOrders() {
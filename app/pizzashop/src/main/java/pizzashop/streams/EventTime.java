@@ -0,0 +1,67 @@
+package pizzashop.streams;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.streams.processor.TimestampExtractor;
+import pizzashop.models.Order;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/*
+Event time of orders, for pizzashop.orders.event-timestamps=epoch.
+
+Order.createdAt is parsed once, by the deserializer of the orders topic (see parsing), into createdAtMicros, and the
+string is dropped so that the repartition records don't carry it. The extractor only reads the parsed time, which
+becomes the timestamp of the record, so the summary and rollup windows follow order time rather than the time the
+order was produced. Parsing in the deserializer doesn't rely on Kafka Streams handing the extractor the same value
+instance it passes downstream. Orders whose time can't be parsed keep their string and the Kafka record timestamp.
+ */
+public class EventTime implements TimestampExtractor {
+    // epoch micros of a timestamp that is missing or can't be parsed
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    /* Wraps the deserializer of the orders topic, so that createdAt is parsed as the order is read */
+    public static Deserializer<Order> parsing(Deserializer<Order> deserializer) {
+        return (topic, data) -> {
+            Order order = deserializer.deserialize(topic, data);
+            if (order != null && order.createdAtMicros == 0) {
+                long micros = parseMicros(order.createdAt);
+                if (micros != UNKNOWN) {
+                    order.createdAtMicros = micros;
+                    order.createdAt = null;
+                }
+            }
+            return order;
+        };
+    }
+
+    @Override
+    public long extract(ConsumerRecord<Object, Object> record, long partitionTime) {
+        if (record.value() instanceof Order order && order.createdAtMicros != 0) {
+            return TimeUnit.MICROSECONDS.toMillis(order.createdAtMicros);
+        }
+        return record.timestamp();
+    }
+
+    /* The pre-parsed epoch micros when set, otherwise the string parsed */
+    public static long micros(long micros, String localDateTime) {
+        return micros != 0 ? micros : parseMicros(localDateTime);
+    }
+
+    /* Epoch micros of a local date time in UTC, as the orders service writes them */
+    public static long parseMicros(String localDateTime) {
+        if (localDateTime == null) {
+            return UNKNOWN;
+        }
+        try {
+            Instant instant = LocalDateTime.parse(localDateTime).toInstant(ZoneOffset.UTC);
+            return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1_000;
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+    }
+}
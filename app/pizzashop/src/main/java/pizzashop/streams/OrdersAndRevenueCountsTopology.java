@@ -1,7 +1,11 @@
 package pizzashop.streams;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.StreamsBuilder;
@@ -10,57 +14,114 @@ import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.*;
 import org.apache.kafka.streams.state.WindowStore;
 import pizzashop.models.Order;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.serialization.CompactSerdes;
 import pizzashop.streams.serialization.JsonSerdes;
+import java.util.List;
 import java.util.Properties;
 import java.time.Duration;
+import java.util.stream.IntStream;
 
 @ApplicationScoped
 public class OrdersAndRevenueCountsTopology {
 
+    public static final String ORDERS_SUMMARY_STORE = "OrdersSummaryStore";
+
+    // Number of sub-keys orders are spread over, each shard is aggregated independently and merged on read
+    @ConfigProperty(name = "pizzashop.orders.shards", defaultValue = "1")
+    int shards;
+
+    // string or epoch, with epoch Order.createdAt is parsed once when the order is read and is the event time of the
+    // windows rather than the time the order was produced, see EventTime
+    @ConfigProperty(name = "pizzashop.orders.event-timestamps", defaultValue = "string")
+    String eventTimestamps;
+
+    @Inject
+    MeterRegistry registry;
+
+    public static String shardKey(Order order, int shards) {
+        return "count-" + Math.floorMod(order.id.hashCode(), shards);
+    }
+
+    public static List<String> shardKeys(int shards) {
+        return IntStream.range(0, shards).mapToObj(shard -> "count-" + shard).toList();
+    }
+
     @Produces
     public Topology buildTopology() {
         // Create a stream over the `orders` topic
         StreamsBuilder builder = new StreamsBuilder();
         // Use: ObjectMapperSerde
         // e.g. https://quarkus.io/guides/kafka-streams
-        KStream<String, Order> orders = builder
-                .stream("orders", Consumed.with(Serdes.String(), JsonSerdes.Order()));
+        Serde<Order> orderSerde = JsonSerdes.Order();
+        boolean epochTimestamps = eventTimestamps.equalsIgnoreCase("epoch");
+        if (epochTimestamps) {
+            orderSerde = Serdes.serdeFrom(orderSerde.serializer(), EventTime.parsing(orderSerde.deserializer()));
+        }
+        Consumed<String, Order> consumed = Consumed.with(Serdes.String(), orderSerde);
+        if (epochTimestamps) {
+            consumed = consumed.withTimestampExtractor(new EventTime());
+        }
+        KStream<String, Order> orders = builder.stream("orders", consumed);
 
 
         // Defining the window size of our state store
-        Duration windowSize = Duration.ofSeconds(60);
-        Duration advanceSize = Duration.ofSeconds(1);
+        // Every order lands in exactly one 1-second bucket, the "last minute" is the sum of the 60 most recent
+        // buckets and is computed at read time in OrdersQueries. A 60s/1s hopping window would instead write every
+        // order into 60 overlapping windows.
+        Duration bucketSize = Duration.ofSeconds(1);
         Duration gracePeriod = Duration.ofSeconds(60);
-        TimeWindows hoppingWindow = TimeWindows
-                .ofSizeAndGrace(windowSize, gracePeriod)
-                //A classic example of a hopping window implementation is a dashboard with moving averages—say,
-                // average clicks on a certain e-commerce page, like a product details page for an air fryer,
-                // for 2-minute windows in the past 24 hours.
-                .advanceBy(advanceSize);
-
-        // Create an OrdersCountStore that keeps track of the number of orders over the last two minutes
-        orders.groupBy((key, value) -> "count", Grouped.with(Serdes.String(), JsonSerdes.Order()))
-                .windowedBy(hoppingWindow)
-                .count(Materialized.<String, Long, WindowStore<Bytes, byte[]>>as("OrdersCountStore")
-                        .withKeySerde(Serdes.String())
-                        .withValueSerde(Serdes.Long())
-                );
+        // Keep enough buckets to answer both the current and the previous minute
+        Duration retention = Duration.ofMinutes(5);
+        TimeWindows tumblingWindow = TimeWindows.ofSizeAndGrace(bucketSize, gracePeriod);
 
-        // Create a RevenueStore that keeps track of the amount of revenue generated over the last two minutes
-        orders.groupBy((key, value) -> "count", Grouped.with(Serdes.String(), JsonSerdes.Order()))
-                .windowedBy(hoppingWindow)
+        // Create an OrdersSummaryStore that keeps track of the number of orders and the revenue per second.
+        // Orders are keyed by shard rather than a single constant key, so the repartition topic spreads them over
+        // several partitions and stream threads.
+        KGroupedStream<String, Order> ordersByShard = orders.groupBy((key, value) -> shardKey(value, shards),
+                Grouped.with(Serdes.String(), JsonSerdes.Order()));
+
+        // Orders added to each aggregation and their lag from Order.createdAt, see StageMetrics
+        StageMetrics summaryStage = new StageMetrics(registry, ORDERS_SUMMARY_STORE);
+        ordersByShard.windowedBy(tumblingWindow)
                 .aggregate(
-                        () -> 0.0,
-                        (key, order, aggregate) -> aggregate + order.price,
-                        Materialized.<String, Double, WindowStore<Bytes, byte[]>>as("RevenueStore")
+                        TimePeriod::new,
+                        (key, order, aggregate) -> {
+                            summaryStage.record(EventTime.micros(order.createdAtMicros, order.createdAt));
+                            return aggregate.addOrder(order);
+                        },
+                        Materialized.<String, TimePeriod, WindowStore<Bytes, byte[]>>as(ORDERS_SUMMARY_STORE)
                                 .withKeySerde(Serdes.String())
-                                .withValueSerde(Serdes.Double())
+                                .withValueSerde(JsonSerdes.TimePeriod())
+                                .withRetention(retention)
                 );
 
+        // Per minute and per hour rollups, aggregated from the same grouped stream rather than from the windows of
+        // the finer resolution: chaining windowed tables would need suppression and delay every level by its grace
+        // period. Each order updates one window per resolution, and the record cache folds those updates before
+        // they reach the changelogs.
+        for (Rollup rollup : Rollup.values()) {
+            StageMetrics rollupStage = new StageMetrics(registry, rollup.storeName());
+            ordersByShard.windowedBy(TimeWindows.ofSizeAndGrace(rollup.window(), gracePeriod))
+                    .aggregate(
+                            TimePeriod::new,
+                            (key, order, aggregate) -> {
+                                rollupStage.record(EventTime.micros(order.createdAtMicros, order.createdAt));
+                                return aggregate.addOrder(order);
+                            },
+                            Materialized.<String, TimePeriod, WindowStore<Bytes, byte[]>>as(rollup.storeName())
+                                    .withKeySerde(Serdes.String())
+                                    .withValueSerde(CompactSerdes.TimePeriod())
+                                    .withRetention(rollup.retention())
+                    );
+        }
+
         final Properties props = new Properties();
 
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, JsonSerdes.Order().getClass());
+        // Lets the aggregations of every resolution share a single repartition topic
+        props.put(StreamsConfig.TOPOLOGY_OPTIMIZATION_CONFIG, StreamsConfig.OPTIMIZE);
 
         return builder.build(props);
     }
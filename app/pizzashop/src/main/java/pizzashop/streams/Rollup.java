@@ -0,0 +1,39 @@
+package pizzashop.streams;
+
+import java.time.Duration;
+
+/*
+Coarser resolutions of the orders summary, each in its own window store with a retention that fits what is read from
+it: a day of minutes and a month of hours.
+ */
+public enum Rollup {
+    MINUTE("OrdersPerMinuteStore", Duration.ofMinutes(1), Duration.ofHours(25)),
+    HOUR("OrdersPerHourStore", Duration.ofHours(1), Duration.ofDays(31));
+
+    private final String storeName;
+    private final Duration window;
+    private final Duration retention;
+
+    Rollup(String storeName, Duration window, Duration retention) {
+        this.storeName = storeName;
+        this.window = window;
+        this.retention = retention;
+    }
+
+    public String storeName() {
+        return storeName;
+    }
+
+    public Duration window() {
+        return window;
+    }
+
+    public Duration retention() {
+        return retention;
+    }
+
+    /* Number of complete windows the store keeps */
+    public int maxPeriods() {
+        return (int) (retention.toMillis() / window.toMillis()) - 1;
+    }
+}
@@ -0,0 +1,47 @@
+package pizzashop.streams;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+Orders added to one aggregation of the topology, and their end-to-end lag: the wall clock when the aggregate was
+updated minus Order.createdAt. The lag adds up the time spent in the orders service, in Kafka, in the repartition
+topic and in the aggregation itself, so comparing it across stages shows which one falls behind.
+
+Exported as pizzashop.stage.records and pizzashop.stage.lag tagged with the stage, next to the Kafka Streams metrics
+of the application. Meters are shared by the tasks running the stage.
+ */
+public class StageMetrics {
+    private final Counter records;
+    private final Timer lag;
+
+    public StageMetrics(MeterRegistry registry, String stage) {
+        records = Counter.builder("pizzashop.stage.records")
+                .description("Records handled by the stage")
+                .tag("stage", stage)
+                .register(registry);
+        lag = Timer.builder("pizzashop.stage.lag")
+                .description("Wall clock when the stage handled a record minus the event time of the record")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+    }
+
+    /* A record handled by the stage, with its event time in epoch micros or EventTime.UNKNOWN */
+    public void record(long eventMicros) {
+        records.increment();
+        if (eventMicros == EventTime.UNKNOWN) {
+            return;
+        }
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        // clocks of the producing services can run ahead, that is no lag rather than a negative one
+        lag.record(Math.max(0, nowMicros - eventMicros), TimeUnit.MICROSECONDS);
+    }
+}
@@ -3,6 +3,7 @@ package pizzashop.streams.serialization;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import pizzashop.models.Order;
+import pizzashop.repository.models.TimePeriod;
 
 public class JsonSerdes {
 
@@ -12,4 +13,10 @@ public class JsonSerdes {
         return Serdes.serdeFrom(serializer, deserializer);
     }
 
+    public static Serde<TimePeriod> TimePeriod() {
+        JsonSerializer<TimePeriod> serializer = new JsonSerializer<>();
+        JsonDeserializer<TimePeriod> deserializer = new JsonDeserializer<>(TimePeriod.class);
+        return Serdes.serdeFrom(serializer, deserializer);
+    }
+
 }
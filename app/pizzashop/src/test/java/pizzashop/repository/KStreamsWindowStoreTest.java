@@ -0,0 +1,80 @@
+package pizzashop.repository;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KStreamsWindowStoreTest {
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+    private static final Instant LATEST = Instant.parse("2022-10-17T13:30:45Z");
+
+    private WindowStore<String, Long> store;
+    private KStreamsWindowStore<Long> windows;
+
+    @BeforeEach
+    public void setUp() {
+        store = Stores.windowStoreBuilder(
+                Stores.inMemoryWindowStore("OrdersSummaryStore", Duration.ofMinutes(5), Duration.ofSeconds(1), false),
+                Serdes.String(), Serdes.Long()).withLoggingDisabled().build();
+        MockProcessorContext<String, Long> context = new MockProcessorContext<>();
+        store.init(context.getStateStoreContext(), store);
+        windows = new KStreamsWindowStore<>(store);
+    }
+
+    @Test
+    public void splitsPeriodsOnWindowBoundaries() {
+        put("count-0", LATEST, 1);
+        put("count-0", LATEST.minusSeconds(59), 2);
+        put("count-0", LATEST.minusSeconds(60), 4);
+        put("count-0", LATEST.minusSeconds(119), 8);
+        // before the oldest period
+        put("count-0", LATEST.minusSeconds(120), 16);
+
+        assertEquals(List.of(3L, 12L), aggregate(List.of("count-0"), LATEST, 2));
+    }
+
+    @Test
+    public void includesTheLatestWindowButNotTheOnesAfterIt() {
+        put("count-0", LATEST, 1);
+        // the window still open when the request was made, then one opened since
+        put("count-0", LATEST.plusSeconds(1), 2);
+
+        assertEquals(List.of(1L), aggregate(List.of("count-0"), LATEST, 1));
+        assertEquals(List.of(3L), aggregate(List.of("count-0"), LATEST.plusSeconds(1), 1));
+    }
+
+    @Test
+    public void keepsTheInitialValueOfEmptyPeriods() {
+        put("count-0", LATEST.minusSeconds(90), 4);
+
+        assertEquals(List.of(0L, 4L, 0L), aggregate(List.of("count-0"), LATEST, 3));
+        assertEquals(List.of(0L, 0L), aggregate(List.of("count-0", "count-1"), LATEST.minusSeconds(150), 2));
+    }
+
+    @Test
+    public void foldsEveryKeyIntoTheSamePeriods() {
+        put("count-0", LATEST, 1);
+        put("count-1", LATEST.minusSeconds(30), 2);
+        put("count-1", LATEST.minusSeconds(70), 4);
+        put("count-2", LATEST, 8);
+
+        assertEquals(List.of(3L, 4L), aggregate(List.of("count-0", "count-1"), LATEST, 2));
+    }
+
+    private void put(String key, Instant windowStart, long value) {
+        store.put(key, value, windowStart.toEpochMilli());
+    }
+
+    private List<Long> aggregate(List<String> keys, Instant latestWindowStart, int periods) {
+        return windows.aggregatePeriods(keys, latestWindowStart, MINUTE, periods, () -> 0L, Long::sum);
+    }
+}
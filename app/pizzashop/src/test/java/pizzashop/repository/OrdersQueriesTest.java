@@ -0,0 +1,66 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import pizzashop.repository.models.SummaryRow;
+import pizzashop.repository.models.TimePeriod;
+import pizzashop.streams.Rollup;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrdersQueriesTest {
+
+    @Test
+    public void mergesShardsAndSkipsEmptyMinutes() {
+        Instant latest = Instant.parse("2022-10-17T13:30:00Z");
+        // most recent first, as KStreamsWindowStore.aggregatePeriods returns them
+        List<TimePeriod> first = List.of(new TimePeriod(1, 10), new TimePeriod(), new TimePeriod(2, 30));
+        List<TimePeriod> second = List.of(new TimePeriod(3, 50), new TimePeriod(), new TimePeriod());
+
+        List<SummaryRow> rows = OrdersQueries.rows(Rollup.MINUTE, latest, 3, List.of(first, second));
+
+        assertEquals(2, rows.size());
+        assertRow("2022-10-17 13:28:00", 2, 30, rows.get(0));
+        assertRow("2022-10-17 13:30:00", 4, 60, rows.get(1));
+    }
+
+    @Test
+    public void labelsHoursWithTheirWindowStart() {
+        Instant latest = Instant.parse("2022-10-17T13:00:00Z");
+        List<TimePeriod> partial = List.of(new TimePeriod(), new TimePeriod(5, 100));
+
+        List<SummaryRow> rows = OrdersQueries.rows(Rollup.HOUR, latest, 2, List.of(partial));
+
+        assertEquals(1, rows.size());
+        assertRow("2022-10-17 12:00:00", 5, 100, rows.get(0));
+    }
+
+    @Test
+    public void returnsNoRowsWithoutOrders() {
+        Instant latest = Instant.parse("2022-10-17T13:30:00Z");
+        List<TimePeriod> partial = List.of(new TimePeriod(), new TimePeriod());
+
+        assertEquals(List.of(), OrdersQueries.rows(Rollup.MINUTE, latest, 2, List.of(partial, partial)));
+    }
+
+    @Test
+    public void clampsPeriodsToTheCompleteWindowsKept() {
+        // a day of minutes and a month of hours, less the window being dropped by retention
+        assertEquals(1499, Rollup.MINUTE.maxPeriods());
+        assertEquals(743, Rollup.HOUR.maxPeriods());
+
+        assertEquals(60, OrdersQueries.periods(Rollup.MINUTE, 60));
+        assertEquals(1499, OrdersQueries.periods(Rollup.MINUTE, 10_000));
+        assertEquals(743, OrdersQueries.periods(Rollup.HOUR, 10_000));
+        assertEquals(1, OrdersQueries.periods(Rollup.HOUR, 0));
+        assertEquals(1, OrdersQueries.periods(Rollup.HOUR, -5));
+    }
+
+    private static void assertRow(String timestamp, long orders, double revenue, SummaryRow row) {
+        assertEquals(timestamp, row.getTimestamp());
+        assertEquals(orders, row.getOrders());
+        assertEquals(revenue, row.getRevenue());
+    }
+}